@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.data;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.ornithemc.meta.fixtures.FixtureServer;
+import net.ornithemc.meta.fixtures.Fixtures;
+
+/**
+ * A full refresh of both databases against a fixture served over http, as
+ * the scheduled update does it. The score is the wall time of a refresh;
+ * the requests, bytes and errors served during it are reported alongside.
+ *
+ * <p>A cold refresh is the first one in a fresh jvm, with no launcher meta
+ * or version details cached yet, as on startup. A warm refresh follows a
+ * previous one, as every scheduled refresh after that does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RefreshBenchmark {
+
+	@Param({ "0", "20" })
+	public int latencyMillis;
+
+	/**
+	 * The rate at which the fixture server writes bodies, 0 for unlimited.
+	 */
+	@Param({ "0" })
+	public int bytesPerSecond;
+
+	/**
+	 * A pattern of paths the fixture server fails with 503, empty for none.
+	 */
+	@Param({ "" })
+	public String failing;
+
+	private Path dir;
+	private FixtureServer server;
+	private MetaSnapshot snapshot;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		dir = Files.createTempDirectory("ornithe-meta-fixture");
+		Fixtures.write(dir);
+
+		server = new FixtureServer(dir.resolve("upstream"), 0);
+		server.latencyMillis = latencyMillis;
+		server.bytesPerSecond = bytesPerSecond;
+		server.errorPattern = failing.isEmpty() ? null : Pattern.compile(failing);
+
+		Fixtures.install(server.getUrl(), dir);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		server.stop();
+		FileUtils.deleteDirectory(dir.toFile());
+	}
+
+	@Benchmark
+	@Fork(5)
+	@Warmup(iterations = 0)
+	@Measurement(iterations = 1)
+	public MetaSnapshot cold(Traffic traffic) throws Exception {
+		return refresh(traffic);
+	}
+
+	@Benchmark
+	@Fork(1)
+	@Warmup(iterations = 3)
+	@Measurement(iterations = 10)
+	public MetaSnapshot warm(Traffic traffic) throws Exception {
+		return refresh(traffic);
+	}
+
+	private MetaSnapshot refresh(Traffic traffic) throws Exception {
+		server.resetCounters();
+
+		VersionDatabaseOld v2 = VersionDatabaseOld.generate((snapshot == null) ? null : snapshot.v2);
+		VersionDatabase v3 = VersionDatabase.generate((snapshot == null) ? null : snapshot.v3);
+
+		snapshot = MetaSnapshot.next(snapshot, v2, v3);
+
+		traffic.requests += server.getRequests();
+		traffic.bytes += server.getBytes();
+		traffic.errors += server.getErrors();
+
+		return snapshot;
+	}
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Traffic {
+
+		public long requests;
+		public long bytes;
+		public long errors;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			requests = 0;
+			bytes = 0;
+			errors = 0;
+		}
+	}
+}
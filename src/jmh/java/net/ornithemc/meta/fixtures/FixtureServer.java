@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.fixtures;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import net.ornithemc.meta.utils.LocalFiles;
+import net.ornithemc.meta.utils.Upstream;
+
+/**
+ * A local http server that serves the upstream half of a fixture written by
+ * {@link Fixtures}, with {@code https://<host>/<path>} served under
+ * {@code /<host>/<path>} as expected of the upstream mirror. Latency, errors
+ * and slow bodies can be injected, and the requests served are counted.
+ */
+public class FixtureServer {
+
+	private static final int CHUNK_SIZE = 1024;
+
+	static {
+		// headers and body are written separately, and with nagle's algorithm
+		// on each response stalls on the client's delayed ack for ~40ms
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+	}
+
+	private final Path root;
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder bytes = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+
+	/**
+	 * The delay before every response, in milliseconds.
+	 */
+	public volatile int latencyMillis;
+	/**
+	 * If set, requests with a path matching this pattern are answered with
+	 * the error status instead.
+	 */
+	public volatile Pattern errorPattern;
+	public volatile int errorStatus = 503;
+	/**
+	 * The rate at which bodies are written, in bytes per second, or 0 to
+	 * write them at once.
+	 */
+	public volatile int bytesPerSecond;
+
+	/**
+	 * Starts serving the given directory on the given port, or on any free
+	 * port if 0.
+	 */
+	public FixtureServer(Path root, int port) throws IOException {
+		AtomicInteger threadCount = new AtomicInteger();
+
+		this.root = root.toAbsolutePath().normalize();
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		this.executor = Executors.newCachedThreadPool(task -> {
+			Thread thread = new Thread(task, "fixture-server-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		this.server.setExecutor(executor);
+		this.server.createContext("/", this::handle);
+		this.server.start();
+	}
+
+	/**
+	 * @return the url to use as the upstream mirror
+	 */
+	public String getUrl() {
+		InetSocketAddress address = server.getAddress();
+		return "http://" + address.getHostString() + ":" + address.getPort() + "/";
+	}
+
+	public long getRequests() {
+		return requests.sum();
+	}
+
+	public long getBytes() {
+		return bytes.sum();
+	}
+
+	public long getErrors() {
+		return errors.sum();
+	}
+
+	public void resetCounters() {
+		requests.reset();
+		bytes.reset();
+		errors.reset();
+	}
+
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			requests.increment();
+
+			if (latencyMillis > 0) {
+				Thread.sleep(latencyMillis);
+			}
+
+			String path = exchange.getRequestURI().getPath();
+			Pattern errorPattern = this.errorPattern;
+
+			if (errorPattern != null && errorPattern.matcher(path).find()) {
+				errors.increment();
+				exchange.sendResponseHeaders(errorStatus, -1);
+				return;
+			}
+
+			Path file = root.resolve(path.substring(1)).normalize();
+
+			if (!file.startsWith(root) || !Files.isRegularFile(file)) {
+				exchange.sendResponseHeaders(404, -1);
+				return;
+			}
+
+			byte[] body = Files.readAllBytes(file);
+			String name = file.getFileName().toString();
+
+			exchange.getResponseHeaders().set("Content-Type", (name.endsWith(".xml") || name.endsWith(".pom")) ? "application/xml" : "application/json");
+			exchange.sendResponseHeaders(200, body.length);
+
+			try (OutputStream os = exchange.getResponseBody()) {
+				write(os, body);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void write(OutputStream os, byte[] body) throws IOException, InterruptedException {
+		int rate = bytesPerSecond;
+
+		if (rate <= 0) {
+			os.write(body);
+			bytes.add(body.length);
+
+			return;
+		}
+
+		for (int offset = 0; offset < body.length; offset += CHUNK_SIZE) {
+			int length = Math.min(CHUNK_SIZE, body.length - offset);
+
+			os.write(body, offset, length);
+			os.flush();
+			bytes.add(length);
+
+			Thread.sleep(length * 1000L / rate);
+		}
+	}
+
+	/**
+	 * Writes a fixture into the given directory, or a temporary one, and
+	 * serves it until killed, so that the service can be run against it.
+	 */
+	public static void main(String[] args) throws IOException {
+		Path dir = (args.length > 0) ? Paths.get(args[0]) : Files.createTempDirectory("ornithe-meta-fixture");
+		int port = (args.length > 1) ? Integer.parseInt(args[1]) : 5556;
+
+		Fixtures.write(dir);
+
+		FixtureServer server = new FixtureServer(dir.resolve("upstream"), port);
+
+		System.out.println("Serving the fixture in " + dir.toAbsolutePath() + ", run the service with:");
+		System.out.println("  -D" + Upstream.MIRROR_PROPERTY + "=" + server.getUrl());
+		System.out.println("  -D" + LocalFiles.DIR_PROPERTY + "=" + dir.resolve("local").toAbsolutePath());
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.fixtures;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import net.ornithemc.meta.data.MetaSnapshot;
+import net.ornithemc.meta.data.VersionDatabase;
+import net.ornithemc.meta.data.VersionDatabaseOld;
+
+/**
+ * A snapshot generated from a freshly written fixture, shared by all
+ * benchmarks of a trial.
+ */
+@State(Scope.Benchmark)
+public class FixtureState {
+
+	public Path dir;
+	public MetaSnapshot snapshot;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		dir = Files.createTempDirectory("ornithe-meta-fixture");
+
+		Fixtures.write(dir);
+		Fixtures.install(dir);
+
+		snapshot = MetaSnapshot.next(null, VersionDatabaseOld.generate(null), VersionDatabase.generate(null));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(dir.toFile());
+	}
+}
@@ -0,0 +1,449 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.fixtures;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.io.IOUtils;
+
+import net.ornithemc.meta.OrnitheMeta;
+import net.ornithemc.meta.data.VersionDatabase;
+import net.ornithemc.meta.utils.LocalFiles;
+import net.ornithemc.meta.utils.Upstream;
+
+/**
+ * Writes a copy of every upstream source the databases are generated from
+ * into a directory, laid out as the mirror expected by {@link Upstream},
+ * together with the local inputs.
+ *
+ * <p>The game versions, launcher meta, config and library upgrades are
+ * checked in under {@code fixtures/}. The maven metadata, poms, manifests and
+ * version details are generated from them, so that the fixture covers several
+ * generations, hundreds of loader versions and all OSL modules without
+ * checking in thousands of near identical files.
+ */
+public class Fixtures {
+
+	public static final int GENERATIONS = 3;
+
+	private static final String MANIFEST_URL = "https://ornithemc.net/mc-versions/";
+	private static final String[] OSL_MODULES = {
+		"branding", "config", "core", "entrypoints", "executors", "keybinds", "lifecycle-events",
+		"mod-menu", "networking", "networking-impl", "resource-loader", "text", "translations", "events"
+	};
+	// ranges of game versions that osl modules are built for
+	private static final String[][] OSL_GAME_RANGES = {
+		{ "b1.0", "b1.8.1" }, { "1.0", "1.2.5" }, { "1.3.1", "1.5.2" }, { "1.6.1", "1.7.10" }, { "1.8", "1.12.2" }, { "1.13", "1.14.4" }
+	};
+	// the first game version that is not split into client and server
+	private static final String FIRST_MERGED_VERSION = "1.3.1";
+
+	private final Path upstream;
+	private final Path local;
+	private final List<GameVersion> gameVersions;
+	private final byte[] launcherMeta;
+
+	private Fixtures(Path dir) throws IOException {
+		this.upstream = dir.resolve("upstream");
+		this.local = dir.resolve("local");
+
+		try (InputStream is = resource("game-versions.json")) {
+			this.gameVersions = OrnitheMeta.MAPPER.readValue(is, new TypeReference<List<GameVersion>>() { });
+		}
+		try (InputStream is = resource("launcher-meta.json")) {
+			this.launcherMeta = IOUtils.toByteArray(is);
+		}
+	}
+
+	/**
+	 * Writes the fixture into the given directory.
+	 */
+	public static void write(Path dir) throws IOException {
+		new Fixtures(dir).write();
+	}
+
+	/**
+	 * Points the upstream mirror and the local files directory at a fixture
+	 * in the given directory. This must be called before the databases are
+	 * first generated.
+	 */
+	public static void install(Path dir) {
+		install(dir.resolve("upstream").toUri().toString(), dir);
+	}
+
+	/**
+	 * Points the upstream mirror at the given url, which may serve a fixture
+	 * from elsewhere, and the local files directory at the fixture in the
+	 * given directory.
+	 */
+	public static void install(String upstreamUrl, Path dir) {
+		System.setProperty(Upstream.MIRROR_PROPERTY, upstreamUrl);
+		System.setProperty(LocalFiles.DIR_PROPERTY, dir.resolve("local").toString());
+	}
+
+	private void write() throws IOException {
+		Files.createDirectories(local);
+		try (InputStream is = resource("config-v3.json")) {
+			Files.copy(is, local.resolve("config-v3.json"), StandardCopyOption.REPLACE_EXISTING);
+		}
+		try (InputStream is = resource("library-upgrades-v3.json")) {
+			Files.copy(is, local.resolve("library-upgrades-v3.json"), StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		writeVersions();
+
+		for (int generation = 1; generation <= GENERATIONS; generation++) {
+			writeGeneration(generation);
+		}
+
+		writeMetadata(VersionDatabase.ORNITHE_MAVEN_URL, "net.ornithemc", "raven", buildVersions(gameVersions(null, "1.2.5", true), 2));
+		writeMetadata(VersionDatabase.ORNITHE_MAVEN_URL, "net.ornithemc", "sparrow", buildVersions(gameVersions("1.3.1", "1.7.10", false), 2));
+		writeMetadata(VersionDatabase.ORNITHE_MAVEN_URL, "net.ornithemc", "nests", buildVersions(gameVersions(null, null, false), 2));
+		writeMetadata(VersionDatabase.ORNITHE_MAVEN_URL, "net.ornithemc", "ornithe-installer", numberedVersions(0, 1, 8, ""));
+
+		writeLoader(VersionDatabase.FABRIC_MAVEN_URL, "net.fabricmc", "fabric-loader", numberedVersions(0, 10, 17, ""));
+		writeLoader(VersionDatabase.QUILT_MAVEN_URL, "org.quiltmc", "quilt-loader", numberedVersions(0, 17, 29, "-beta."));
+
+		// v2
+		writeMetadata(VersionDatabase.ORNITHE_MAVEN_URL, "net.ornithemc", "calamus", gameVersions(null, null, true));
+		writeLoader(VersionDatabase.ORNITHE_MAVEN_URL, "net.ornithemc", "ornithe-loader", numberedVersions(0, 1, 4, ""));
+		writeMetadata(VersionDatabase.ORNITHE_MAVEN_URL, "net.ornithemc", "ornithe-installer-old", numberedVersions(0, 1, 3, ""));
+	}
+
+	private void writeVersions() throws IOException {
+		Instant releaseTime = Instant.parse("2010-12-20T17:00:00Z");
+
+		for (GameVersion version : gameVersions) {
+			ObjectNode details = OrnitheMeta.MAPPER.createObjectNode();
+			details.put("id", version.id);
+			details.put("normalizedVersion", version.normalizedVersion);
+
+			ObjectNode json = OrnitheMeta.MAPPER.createObjectNode();
+			json.put("id", version.id);
+			json.put("type", version.type);
+			ObjectNode logging = json.putObject("logging").putObject("client");
+			logging.put("argument", "-Dlog4j.configurationFile=${path}");
+			logging.put("type", "log4j2-xml");
+			ObjectNode file = logging.putObject("file");
+			file.put("id", "client-1.12.xml");
+			file.put("sha1", "bd65e7d2e3c237be76cfbef4c2405033d7f91521");
+			file.put("size", 888);
+			file.put("url", "https://launcher.mojang.com/v1/objects/bd65e7d2e3c237be76cfbef4c2405033d7f91521/client-1.12.xml");
+
+			version.details = MANIFEST_URL + "details/" + version.id + ".json";
+			version.detailsSha1 = sha1(writeJson(version.details, details));
+			version.url = MANIFEST_URL + "versions/" + version.id + ".json";
+			version.sha1 = sha1(writeJson(version.url, json));
+			version.releaseTime = releaseTime.toString().replace("Z", "+00:00");
+			version.time = version.releaseTime;
+
+			releaseTime = releaseTime.plus(9, ChronoUnit.DAYS);
+		}
+	}
+
+	private void writeGeneration(int generation) throws IOException {
+		String suffix = (generation == 1) ? "" : "-gen" + generation;
+
+		ObjectNode manifest = OrnitheMeta.MAPPER.createObjectNode();
+		ArrayNode versions = manifest.putArray("versions");
+
+		// manifests list the newest versions first
+		for (int i = gameVersions.size() - 1; i >= 0; i--) {
+			GameVersion version = gameVersions.get(i);
+			ObjectNode node = versions.addObject();
+
+			node.put("id", version.id);
+			node.put("type", version.type);
+			node.put("url", version.url);
+			node.put("sha1", version.sha1);
+			node.put("time", version.time);
+			node.put("releaseTime", version.releaseTime);
+			node.put("details", version.details);
+			node.put("detailsSha1", version.detailsSha1);
+		}
+
+		writeJson(MANIFEST_URL + "gen" + generation + "/version_manifest.json", manifest);
+
+		writeMetadata(VersionDatabase.ORNITHE_MAVEN_URL, "net.ornithemc", "calamus-intermediary" + suffix, gameVersions(null, null, true));
+		writeMetadata(VersionDatabase.ORNITHE_MAVEN_URL, "net.ornithemc", "feather" + suffix, buildVersions(gameVersions(null, null, true), 3));
+
+		String oslGroup = "net.ornithemc.osl" + suffix;
+		List<String> oslVersions = numberedVersions(0, 1, 16, "");
+		List<List<String>> moduleVersions = new ArrayList<>();
+
+		writeMetadata(VersionDatabase.ORNITHE_MAVEN_URL, "net.ornithemc", "osl" + suffix, oslVersions);
+
+		ObjectNode details = OrnitheMeta.MAPPER.createObjectNode();
+		ArrayNode files = details.putArray("files");
+
+		for (String module : OSL_MODULES) {
+			List<String> versionsOfModule = oslModuleVersions();
+			writeMetadata(VersionDatabase.ORNITHE_MAVEN_URL, oslGroup, module, versionsOfModule);
+			moduleVersions.add(versionsOfModule);
+
+			ObjectNode file = files.addObject();
+			file.put("name", module);
+			file.put("type", "DIRECTORY");
+		}
+		// version directories are listed too, but are not modules
+		for (String version : oslVersions.subList(oslVersions.size() - 3, oslVersions.size())) {
+			ObjectNode file = files.addObject();
+			file.put("name", version);
+			file.put("type", "DIRECTORY");
+		}
+
+		writeJson(VersionDatabase.ORNITHE_MAVEN_DETAILS_URL + "net/ornithemc/osl" + suffix, details);
+
+		for (int i = 0; i < oslVersions.size(); i++) {
+			String version = oslVersions.get(i);
+			List<String> dependencies = new ArrayList<>();
+
+			for (int m = 0; m < OSL_MODULES.length; m++) {
+				List<String> versionsOfModule = moduleVersions.get(m);
+
+				// every osl version depends on all modules, for every range of game versions
+				for (int r = 0; r < OSL_GAME_RANGES.length; r++) {
+					int index = Math.min(i / 4, versionsOfModule.size() / OSL_GAME_RANGES.length - 1) * OSL_GAME_RANGES.length + r;
+					dependencies.add(oslGroup + ":" + OSL_MODULES[m] + ":" + versionsOfModule.get(index));
+				}
+			}
+
+			write(VersionDatabase.ORNITHE_MAVEN_URL + "net/ornithemc/osl" + suffix + "/" + version + "/osl" + suffix + "-" + version + ".pom", pom("net.ornithemc", "osl" + suffix, version, dependencies));
+		}
+
+		for (int m = 0; m < OSL_MODULES.length; m++) {
+			String module = OSL_MODULES[m];
+
+			for (String version : moduleVersions.get(m)) {
+				List<String> dependencies = new ArrayList<>();
+
+				// modules depend on core, and implementations on their api, at the same version
+				if (module.endsWith("-impl")) {
+					dependencies.add(oslGroup + ":" + module.substring(0, module.length() - "-impl".length()) + ":" + version);
+				} else if (!module.equals("core")) {
+					dependencies.add(oslGroup + ":core:" + version);
+				}
+
+				write(VersionDatabase.ORNITHE_MAVEN_URL + oslGroup.replace('.', '/') + "/" + module + "/" + version + "/" + module + "-" + version + ".pom", pom(oslGroup, module, version, dependencies));
+			}
+		}
+	}
+
+	private static byte[] pom(String groupId, String artifactId, String version, List<String> dependencies) {
+		StringBuilder pom = new StringBuilder();
+
+		pom.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		pom.append("<project>\n");
+		pom.append("  <modelVersion>4.0.0</modelVersion>\n");
+		pom.append("  <groupId>").append(groupId).append("</groupId>\n");
+		pom.append("  <artifactId>").append(artifactId).append("</artifactId>\n");
+		pom.append("  <version>").append(version).append("</version>\n");
+		pom.append("  <dependencies>\n");
+
+		for (String dependency : dependencies) {
+			String[] parts = dependency.split(":");
+
+			pom.append("    <dependency>\n");
+			pom.append("      <groupId>").append(parts[0]).append("</groupId>\n");
+			pom.append("      <artifactId>").append(parts[1]).append("</artifactId>\n");
+			pom.append("      <version>").append(parts[2]).append("</version>\n");
+			pom.append("      <scope>compile</scope>\n");
+			pom.append("    </dependency>\n");
+		}
+
+		pom.append("  </dependencies>\n");
+		pom.append("</project>\n");
+
+		return pom.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private void writeLoader(String mavenUrl, String groupId, String artifactId, List<String> versions) throws IOException {
+		writeMetadata(mavenUrl, groupId, artifactId, versions);
+
+		for (String version : versions) {
+			write(mavenUrl + groupId.replace('.', '/') + "/" + artifactId + "/" + version + "/" + artifactId + "-" + version + ".json", launcherMeta);
+		}
+	}
+
+	private void writeMetadata(String mavenUrl, String groupId, String artifactId, List<String> versions) throws IOException {
+		StringBuilder xml = new StringBuilder();
+
+		xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		xml.append("<metadata>\n");
+		xml.append("  <groupId>").append(groupId).append("</groupId>\n");
+		xml.append("  <artifactId>").append(artifactId).append("</artifactId>\n");
+		xml.append("  <versioning>\n");
+		xml.append("    <latest>").append(versions.get(versions.size() - 1)).append("</latest>\n");
+		xml.append("    <release>").append(versions.get(versions.size() - 1)).append("</release>\n");
+		xml.append("    <versions>\n");
+		for (String version : versions) {
+			xml.append("      <version>").append(version).append("</version>\n");
+		}
+		xml.append("    </versions>\n");
+		xml.append("    <lastUpdated>20250101000000</lastUpdated>\n");
+		xml.append("  </versioning>\n");
+		xml.append("</metadata>\n");
+
+		write(mavenUrl + groupId.replace('.', '/') + "/" + artifactId + "/maven-metadata.xml", xml.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @return the ids of the game versions from {@code from} to {@code to},
+	 * both inclusive and unbounded if null, oldest first. Versions before 1.3
+	 * are split into client and server if asked.
+	 */
+	private List<String> gameVersions(String from, String to, boolean sided) {
+		List<String> versions = new ArrayList<>();
+		boolean merged = false;
+		boolean inRange = (from == null);
+
+		for (GameVersion version : gameVersions) {
+			merged |= version.id.equals(FIRST_MERGED_VERSION);
+			inRange |= version.id.equals(from);
+
+			if (inRange) {
+				if (sided && !merged) {
+					versions.add(version.id + "-client");
+					versions.add(version.id + "-server");
+				} else {
+					versions.add(version.id);
+				}
+			}
+			if (version.id.equals(to)) {
+				break;
+			}
+		}
+
+		return versions;
+	}
+
+	private static List<String> buildVersions(List<String> versions, int builds) {
+		List<String> result = new ArrayList<>();
+
+		for (String version : versions) {
+			for (int build = 1; build <= builds; build++) {
+				result.add(version + "+build." + build);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return versions {@code major.minor.patch} for the given range of minor
+	 * versions, each with a few patches and, if a prerelease separator is
+	 * given, prereleases before the first patch.
+	 */
+	private static List<String> numberedVersions(int major, int minMinor, int maxMinor, String prerelease) {
+		List<String> versions = new ArrayList<>();
+
+		for (int minor = minMinor; minor <= maxMinor; minor++) {
+			if (!prerelease.isEmpty()) {
+				for (int pre = 1; pre <= 4; pre++) {
+					versions.add(major + "." + minor + ".0" + prerelease + pre);
+				}
+			}
+			for (int patch = 0; patch < 4 + (minor * 7) % 11; patch++) {
+				versions.add(major + "." + minor + "." + patch);
+			}
+		}
+
+		return versions;
+	}
+
+	private static List<String> oslModuleVersions() {
+		List<String> versions = new ArrayList<>();
+
+		for (int base = 0; base < 6; base++) {
+			for (String[] range : OSL_GAME_RANGES) {
+				// the oldest builds use the old format
+				String separator = (base == 0) ? "#" : "-mc";
+				versions.add("0." + base + ".0+mc" + range[0] + separator + range[1]);
+			}
+		}
+
+		return versions;
+	}
+
+	private byte[] writeJson(String url, Object json) throws IOException {
+		byte[] bytes = OrnitheMeta.MAPPER.writeValueAsBytes(json);
+		write(url, bytes);
+		return bytes;
+	}
+
+	private void write(String url, byte[] bytes) throws IOException {
+		Path file = upstream.resolve(url.substring(url.indexOf("://") + 3));
+		Files.createDirectories(file.getParent());
+		Files.write(file, bytes);
+	}
+
+	private static InputStream resource(String name) throws IOException {
+		InputStream is = Fixtures.class.getResourceAsStream("/fixtures/" + name);
+
+		if (is == null) {
+			throw new IOException("missing fixture " + name);
+		}
+
+		return is;
+	}
+
+	private static String sha1(byte[] bytes) {
+		try {
+			StringBuilder sb = new StringBuilder();
+
+			for (byte b : MessageDigest.getInstance("SHA-1").digest(bytes)) {
+				sb.append(String.format("%02x", b));
+			}
+
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static class GameVersion {
+
+		public String id;
+		public String type;
+		public String normalizedVersion;
+
+		// filled in while writing the fixture
+		String url;
+		String sha1;
+		String time;
+		String releaseTime;
+		String details;
+		String detailsSha1;
+
+	}
+}
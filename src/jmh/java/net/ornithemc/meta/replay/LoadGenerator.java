@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.replay;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.io.IOUtils;
+
+import net.ornithemc.meta.OrnitheMeta;
+import net.ornithemc.meta.web.AccessLog;
+import net.ornithemc.meta.web.AccessLog.Entry;
+
+/**
+ * Replays an {@link AccessLog} against a running instance and reports the
+ * throughput, latency percentiles overall and per route, response statuses
+ * and the garbage collection the instance did meanwhile, so that builds can
+ * be compared under the recorded traffic mix.
+ *
+ * <p>Requests are sent by a fixed number of connections. If a rate is given,
+ * request {@code i} is due {@code i / rate} seconds after the start, and its
+ * latency is measured from when it was due rather than when it was sent, so
+ * that a stalled server is not hidden by the generator backing off.
+ *
+ * <pre>
+ * LoadGenerator &lt;access log&gt; [--url http://localhost:5555] [--concurrency 8]
+ *     [--rate requests per second, 0 for unlimited] [--requests count] [--warmup count]
+ * </pre>
+ */
+public class LoadGenerator {
+
+	private static final String GC_COLLECTIONS = "ornithe_meta_jvm_gc_collections_total";
+	private static final String GC_SECONDS = "ornithe_meta_jvm_gc_collection_seconds_total";
+	private static final double[] PERCENTILES = { 0.5, 0.9, 0.99, 0.999 };
+	private static final String[] PERCENTILE_NAMES = { "p50", "p90", "p99", "p99.9" };
+
+	private final String url;
+	private final List<Entry> entries;
+	private final int concurrency;
+	private final double rate;
+
+	private LoadGenerator(String url, List<Entry> entries, int concurrency, double rate) {
+		this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+		this.entries = entries;
+		this.concurrency = concurrency;
+		this.rate = rate;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length == 0) {
+			System.err.println("usage: LoadGenerator <access log> [--url <url>] [--concurrency <n>] [--rate <n>] [--requests <n>] [--warmup <n>]");
+			System.exit(1);
+		}
+
+		List<Entry> entries = read(args[0]);
+		String url = "http://localhost:5555";
+		int concurrency = 8;
+		double rate = 0;
+		int requests = entries.size();
+		int warmup = 0;
+
+		for (int i = 1; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+
+			switch (args[i]) {
+			case "--url":
+				url = value;
+				break;
+			case "--concurrency":
+				concurrency = Integer.parseInt(value);
+				break;
+			case "--rate":
+				rate = Double.parseDouble(value);
+				break;
+			case "--requests":
+				requests = Integer.parseInt(value);
+				break;
+			case "--warmup":
+				warmup = Integer.parseInt(value);
+				break;
+			default:
+				throw new IllegalArgumentException("unknown option " + args[i]);
+			}
+		}
+
+		if (entries.isEmpty()) {
+			throw new IllegalArgumentException("no requests to replay in " + args[0]);
+		}
+
+		LoadGenerator generator = new LoadGenerator(url, entries, concurrency, rate);
+
+		if (warmup > 0) {
+			System.out.println("Warming up with " + warmup + " requests");
+			generator.run(warmup);
+		}
+
+		System.out.println("Replaying " + requests + " requests from " + entries.size() + " logged requests against " + url);
+
+		Map<String, Double> gcBefore = generator.scrapeGc();
+		Result result = generator.run(requests);
+		Map<String, Double> gcAfter = generator.scrapeGc();
+
+		result.print(gcBefore, gcAfter);
+	}
+
+	private static List<Entry> read(String file) throws IOException {
+		List<Entry> entries = new ArrayList<>();
+
+		for (String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)) {
+			if (line.isEmpty()) {
+				continue;
+			}
+
+			Entry entry = OrnitheMeta.MAPPER.readValue(line, Entry.class);
+
+			// only reads can be replayed safely
+			if ("GET".equals(entry.method)) {
+				entries.add(entry);
+			}
+		}
+
+		return entries;
+	}
+
+	private Result run(int requests) throws InterruptedException {
+		Result result = new Result(requests);
+		AtomicInteger next = new AtomicInteger();
+		List<Thread> threads = new ArrayList<>();
+		long start = System.nanoTime();
+
+		for (int t = 0; t < concurrency; t++) {
+			Thread thread = new Thread(() -> {
+				for (int i; (i = next.getAndIncrement()) < requests; ) {
+					Entry entry = entries.get(i % entries.size());
+					long due = (rate > 0) ? start + (long) (i * 1e9 / rate) : System.nanoTime();
+
+					try {
+						long delay = due - System.nanoTime();
+
+						if (delay > 0) {
+							TimeUnit.NANOSECONDS.sleep(delay);
+						}
+					} catch (InterruptedException e) {
+						return;
+					}
+
+					result.statuses.incrementAndGet(send(entry, result));
+					result.latencies[i] = System.nanoTime() - due;
+				}
+			}, "load-generator-" + t);
+
+			thread.start();
+			threads.add(thread);
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		result.nanos = System.nanoTime() - start;
+
+		return result;
+	}
+
+	/**
+	 * @return the response status, or 0 if the request failed
+	 */
+	private int send(Entry entry, Result result) {
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(url + entry.path + ((entry.query == null) ? "" : "?" + entry.query)).openConnection();
+			connection.setUseCaches(false);
+
+			for (Map.Entry<String, String> header : entry.headers.entrySet()) {
+				connection.setRequestProperty(header.getKey(), header.getValue());
+			}
+
+			int status = connection.getResponseCode();
+			InputStream body = (status >= 400) ? connection.getErrorStream() : connection.getInputStream();
+
+			if (body != null) {
+				// read the body to the end so the connection can be reused
+				try (InputStream is = body) {
+					result.bytes.add(IOUtils.consume(is));
+				}
+			}
+
+			return (status > 0 && status < result.statuses.length()) ? status : 0;
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * @return the garbage collection counters from the metrics of the
+	 * instance, or an empty map if they are not available
+	 */
+	private Map<String, Double> scrapeGc() {
+		Map<String, Double> values = new TreeMap<>();
+
+		try {
+			for (String line : IOUtils.toString(new URL(url + "/metrics"), StandardCharsets.UTF_8).split("\n")) {
+				String[] parts = line.split(" ");
+
+				if (parts.length == 2 && (parts[0].equals(GC_COLLECTIONS) || parts[0].equals(GC_SECONDS))) {
+					values.put(parts[0], Double.parseDouble(parts[1]));
+				}
+			}
+		} catch (IOException | NumberFormatException e) {
+			values.clear();
+		}
+
+		return values;
+	}
+
+	private class Result {
+
+		final long[] latencies;
+		final AtomicLongArray statuses = new AtomicLongArray(600);
+		final LongAdder bytes = new LongAdder();
+		long nanos;
+
+		Result(int requests) {
+			this.latencies = new long[requests];
+		}
+
+		void print(Map<String, Double> gcBefore, Map<String, Double> gcAfter) {
+			int requests = latencies.length;
+			double seconds = nanos / 1e9;
+			long failed = statuses.get(0);
+			long errors = failed;
+
+			System.out.printf("throughput: %d requests in %.2fs, %.1f requests/s, %.1f MB/s%n", requests, seconds, requests / seconds, bytes.sum() / seconds / 1e6);
+			System.out.println("latency:    " + percentiles(latencies));
+
+			StringBuilder sb = new StringBuilder();
+
+			for (int status = 1; status < statuses.length(); status++) {
+				long count = statuses.get(status);
+
+				if (count > 0) {
+					sb.append(status).append(": ").append(count).append("  ");
+
+					if (status >= 400) {
+						errors += count;
+					}
+				}
+			}
+			if (failed > 0) {
+				sb.append("failed: ").append(failed);
+			}
+
+			System.out.println("statuses:   " + sb.toString().trim());
+			System.out.printf("errors:     %d (%.2f%%)%n", errors, 100.0 * errors / requests);
+
+			if (gcBefore.size() == 2 && gcAfter.size() == 2) {
+				System.out.printf("gc:         %.0f collections, %.3fs%n", gcAfter.get(GC_COLLECTIONS) - gcBefore.get(GC_COLLECTIONS), gcAfter.get(GC_SECONDS) - gcBefore.get(GC_SECONDS));
+			} else {
+				System.out.println("gc:         unavailable, the instance does not expose gc metrics");
+			}
+
+			Map<String, List<Long>> routes = new TreeMap<>();
+
+			for (int i = 0; i < requests; i++) {
+				routes.computeIfAbsent(entries.get(i % entries.size()).route, key -> new ArrayList<>()).add(latencies[i]);
+			}
+
+			System.out.println("per route:");
+
+			for (Map.Entry<String, List<Long>> route : routes.entrySet()) {
+				long[] routeLatencies = route.getValue().stream().mapToLong(Long::longValue).toArray();
+				System.out.printf("  %s (%d)%n    %s%n", route.getKey(), routeLatencies.length, percentiles(routeLatencies));
+			}
+		}
+	}
+
+	private static String percentiles(long[] latencies) {
+		long[] sorted = latencies.clone();
+		Arrays.sort(sorted);
+
+		StringBuilder sb = new StringBuilder();
+
+		for (int i = 0; i < PERCENTILES.length; i++) {
+			long latency = sorted[Math.max(0, (int) Math.ceil(PERCENTILES[i] * sorted.length) - 1)];
+			sb.append(String.format("%s %.2fms  ", PERCENTILE_NAMES[i], latency / 1e6));
+		}
+
+		sb.append(String.format("max %.2fms", sorted[sorted.length - 1] / 1e6));
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.web;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.ornithemc.meta.data.VersionDatabase;
+import net.ornithemc.meta.data.VersionDatabaseOld;
+import net.ornithemc.meta.fixtures.FixtureState;
+import net.ornithemc.meta.web.models.BaseVersion;
+import net.ornithemc.meta.web.models.Library;
+import net.ornithemc.meta.web.models.LoaderInfoV3;
+import net.ornithemc.meta.web.models.LoaderType;
+import net.ornithemc.meta.web.models.MavenBuildGameVersion;
+import net.ornithemc.meta.web.models.MavenBuildVersion;
+import net.ornithemc.meta.web.models.MavenVersion;
+
+/**
+ * The lookups behind the most requested v2 and v3 endpoints, without the
+ * http layer or json serialization.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EndpointsBenchmark {
+
+	@Param({ "1.6.4", "1.8.9", "1.14.4" })
+	public String gameVersion;
+
+	@Param({ "2" })
+	public int generation;
+
+	private VersionDatabase v3;
+	private VersionDatabaseOld v2;
+	private String loaderVersion;
+
+	@Setup
+	public void setup(FixtureState fixture) {
+		v3 = fixture.snapshot.v3;
+		v2 = fixture.snapshot.v2;
+		loaderVersion = v3.getLoader(generation, LoaderType.FABRIC).get(0).getVersion();
+	}
+
+	@Benchmark
+	public LoaderInfoV3 loaderInfo() {
+		MavenBuildVersion loader = v3.findLoader(generation, LoaderType.FABRIC, loaderVersion);
+		return new LoaderInfoV3(LoaderType.FABRIC, loader, v3.findIntermediary(generation, gameVersion)).populateMeta(v3.getLauncherMeta(loader));
+	}
+
+	@Benchmark
+	public List<?> loaderInfoAll() {
+		return EndpointsV3.getLoaderInfoAll(v3, generation, LoaderType.FABRIC, gameVersion);
+	}
+
+	@Benchmark
+	public List<MavenVersion> intermediary() {
+		return EndpointsV3.filter(v3.getIntermediary(generation), gameVersion);
+	}
+
+	@Benchmark
+	public List<MavenBuildGameVersion> feather() {
+		return EndpointsV3.filter(v3.getFeather(generation), gameVersion);
+	}
+
+	@Benchmark
+	public List<BaseVersion> featherGameVersions() {
+		return EndpointsV3.compatibleGameVersions(v3.getFeather(generation), MavenBuildGameVersion::getGameVersion, v -> new BaseVersion(v.getGameVersion(), v.isStable()));
+	}
+
+	@Benchmark
+	public List<Library> libraries() {
+		return EndpointsV3.getLibraries(v3, generation, gameVersion);
+	}
+
+	@Benchmark
+	public List<?> oslModule() {
+		return EndpointsV3.getOslModuleInfo(v3, generation, "networking", gameVersion, null);
+	}
+
+	@Benchmark
+	public List<?> loaderInfoAllV2() {
+		return EndpointsV2.getLoaderInfoAll(v2, gameVersion);
+	}
+}
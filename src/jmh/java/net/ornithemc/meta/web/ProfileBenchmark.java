@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.web;
+
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.ornithemc.meta.data.VersionDatabase;
+import net.ornithemc.meta.fixtures.FixtureState;
+import net.ornithemc.meta.web.models.LoaderInfoV3;
+import net.ornithemc.meta.web.models.LoaderType;
+import net.ornithemc.meta.web.models.MavenBuildVersion;
+
+/**
+ * Profile generation: building the profile json, rendering a compiled
+ * template, and packaging the profile zip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ProfileBenchmark {
+
+	@Param({ "1.8.9", "1.12.2" })
+	public String gameVersion;
+
+	@Param({ "2" })
+	public int generation;
+
+	private VersionDatabase database;
+	private LoaderInfoV3 info;
+	private ProfileTemplate template;
+	private long time;
+
+	@Setup
+	public void setup(FixtureState fixture) {
+		database = fixture.snapshot.v3;
+		time = fixture.snapshot.publishTime;
+		MavenBuildVersion loader = database.getLoader(generation, LoaderType.FABRIC).get(0);
+		info = new LoaderInfoV3(LoaderType.FABRIC, loader, database.findIntermediary(generation, gameVersion)).populateMeta(database.getLauncherMeta(loader));
+		template = ProfileTemplate.compile(ProfileHandlerV3.buildProfileJson(database, generation, info, "client"));
+	}
+
+	@Benchmark
+	public JsonNode buildProfileJson() {
+		return ProfileHandlerV3.buildProfileJson(database, generation, info, "client");
+	}
+
+	@Benchmark
+	public byte[] renderProfileJson() {
+		return template.render(time);
+	}
+
+	@Benchmark
+	public byte[] packageZip() {
+		return ProfileHandlerV3.packageZip(database, time, generation, info);
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.web;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.ornithemc.meta.data.VersionDatabase;
+import net.ornithemc.meta.data.VersionDatabaseOld;
+import net.ornithemc.meta.fixtures.FixtureState;
+import net.ornithemc.meta.web.WebServer.JsonResponse;
+import net.ornithemc.meta.web.models.LoaderType;
+
+/**
+ * Serialization of json responses, from the full database routes down to
+ * single loader listings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SerializationBenchmark {
+
+	private VersionDatabase v3;
+	private VersionDatabaseOld v2;
+	private List<?> loaderInfoAll;
+
+	@Setup
+	public void setup(FixtureState fixture) {
+		v3 = fixture.snapshot.v3;
+		v2 = fixture.snapshot.v2;
+		loaderInfoAll = EndpointsV3.getLoaderInfoAll(v3, 2, LoaderType.FABRIC, "1.8.9");
+	}
+
+	@Benchmark
+	public JsonResponse databaseV3() {
+		return WebServer.toJson(200, v3);
+	}
+
+	@Benchmark
+	public JsonResponse databaseV2() {
+		return WebServer.toJson(200, v2);
+	}
+
+	@Benchmark
+	public JsonResponse fabricLoaders() {
+		return WebServer.toJson(200, v3.getLoader(1, LoaderType.FABRIC));
+	}
+
+	@Benchmark
+	public JsonResponse loaderInfoAll() {
+		return WebServer.toJson(200, loaderInfoAll);
+	}
+}
@@ -20,39 +20,94 @@ package net.ornithemc.meta;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import net.ornithemc.meta.data.MetaSnapshot;
 import net.ornithemc.meta.data.VersionDatabase;
 import net.ornithemc.meta.data.VersionDatabaseOld;
+import net.ornithemc.meta.utils.LocalFiles;
+import net.ornithemc.meta.web.InstallResolver;
+import net.ornithemc.meta.web.LookupIndex;
 import net.ornithemc.meta.web.WebServer;
 import org.tinylog.Logger;
 import org.tinylog.TaggedLogger;
 
+import java.io.IOException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class OrnitheMeta
 {
 
-	public static volatile VersionDatabaseOld databaseOld;
-	public static volatile VersionDatabase database;
+	private static final AtomicReference<MetaSnapshot> SNAPSHOT = new AtomicReference<>();
+	private static final AtomicBoolean RELOAD_PENDING = new AtomicBoolean();
+	private static ScheduledFuture<?> refresh;
 	public static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
     public static final TaggedLogger LOGGER = Logger.tag("ornithe-meta");
 
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
         LOGGER.warn("Starting up!");
 
-		update();
+		update(false);
 
+		// refreshes and reloads run on the same thread, so they never race to publish a snapshot
 		ScheduledExecutorService executorService = Executors.newScheduledThreadPool(1);
-		executorService.scheduleAtFixedRate(OrnitheMeta::update, 1, 1, TimeUnit.MINUTES);
+		refresh = executorService.scheduleAtFixedRate(() -> update(false), 1, 1, TimeUnit.MINUTES);
+
+		LocalFiles.watch(files -> {
+			LOGGER.info("Local inputs changed: {}", files);
+
+			if (!RELOAD_PENDING.getAndSet(true)) {
+				executorService.execute(() -> {
+					RELOAD_PENDING.set(false);
+					update(true);
+				});
+			}
+		});
 
 		WebServer.start();
 	}
 
-	private static void update(){
+	/**
+	 * The latest published snapshot. Request handlers should read this once
+	 * and use that snapshot for the entire request.
+	 */
+	public static MetaSnapshot snapshot() {
+		return SNAPSHOT.get();
+	}
+
+	/**
+	 * @return the time until the next scheduled refresh starts, or 0 if it
+	 * is due or running.
+	 */
+	public static long getNextRefreshDelay(TimeUnit unit) {
+		return (refresh == null) ? 0 : Math.max(0, refresh.getDelay(unit));
+	}
+
+	/**
+	 * Generates new databases and publishes them. A reload only applies
+	 * changes to the local inputs, reusing the upstream data of the current
+	 * snapshot.
+	 */
+	private static void update(boolean reload){
 		try {
-			databaseOld = VersionDatabaseOld.generate();
-			database = VersionDatabase.generate();
+			MetaSnapshot previous = SNAPSHOT.get();
+			boolean reuseUpstream = reload && previous != null;
+			VersionDatabaseOld databaseOld = VersionDatabaseOld.generate((previous == null) ? null : previous.v2, reuseUpstream);
+			VersionDatabase database = VersionDatabase.generate((previous == null) ? null : previous.v3, reuseUpstream);
+
+			// serialized before publishing, so that they are ready for the first request
+			InstallResolver.precompute(database);
+			LookupIndex.precompute(database);
+
+			MetaSnapshot snapshot = SNAPSHOT.updateAndGet(latest -> MetaSnapshot.next(latest, databaseOld, database));
+			LOGGER.info("Published snapshot {}", snapshot.id);
+
+			if (WebServer.events != null) {
+				WebServer.events.publish(snapshot);
+			}
 		} catch (Exception e) {
 			Logger.error(e);
 		}
@@ -18,21 +18,31 @@
 
 package net.ornithemc.meta.data;
 
-import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.List;
 
 import net.ornithemc.meta.OrnitheMeta;
+import net.ornithemc.meta.utils.LocalFiles;
 
 public class ConfigV3 {
 
-	private static final File FILE = new File("config-v3.json");
+	private static final Path FILE_PATH = Paths.get("config-v3.json");
 
 	public int latestIntermediaryGeneration = -1;
 	public int stableIntermediaryGeneration = -1;
 	public List<UnstableIntermediaryVersion> unstableIntermediaryVersions = Collections.emptyList();
 
 	public static ConfigV3 load() throws Exception {
-		return OrnitheMeta.MAPPER.readValue(FILE, ConfigV3.class);
+		// the config is only parsed again once the file changes
+		ConfigV3 config = LocalFiles.read(FILE_PATH, file -> OrnitheMeta.MAPPER.readValue(file.toFile(), ConfigV3.class));
+
+		if (config == null) {
+			throw new FileNotFoundException(FILE_PATH.toString());
+		}
+
+		return config;
 	}
 }
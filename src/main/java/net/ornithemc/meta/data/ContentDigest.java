@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.data;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import net.ornithemc.meta.utils.VersionManifest;
+import net.ornithemc.meta.web.models.BaseVersion;
+import net.ornithemc.meta.web.models.MavenVersion;
+
+/**
+ * A digest of everything that the responses derived from a database depend
+ * on, so that consecutive databases can be compared without comparing their
+ * responses. Values are added in a fixed order, and each is terminated, so
+ * that different contents cannot produce the same input.
+ */
+final class ContentDigest {
+
+	private final MessageDigest digest;
+
+	ContentDigest() {
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	ContentDigest add(String value) {
+		if (value == null) {
+			digest.update((byte) 1);
+		} else {
+			digest.update(value.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+		}
+
+		return this;
+	}
+
+	ContentDigest add(int value) {
+		return add(Integer.toString(value));
+	}
+
+	ContentDigest add(JsonNode json) {
+		return add((json == null) ? null : json.toString());
+	}
+
+	/**
+	 * Adds the given versions in order, with their stability.
+	 */
+	ContentDigest add(List<? extends BaseVersion> versions) {
+		if (versions == null) {
+			return add((String) null);
+		}
+
+		add(versions.size());
+
+		for (BaseVersion version : versions) {
+			add((version instanceof MavenVersion) ? ((MavenVersion) version).getMaven() : version.getVersion());
+			add(version.isStable() ? "stable" : "unstable");
+		}
+
+		return this;
+	}
+
+	/**
+	 * Adds the given versions by key, in order of their keys. Keys mapped to
+	 * null are added as such.
+	 */
+	ContentDigest add(Map<String, ? extends List<? extends BaseVersion>> versions) {
+		add(versions.size());
+
+		for (Map.Entry<String, ? extends List<? extends BaseVersion>> e : new TreeMap<>(versions).entrySet()) {
+			add(e.getKey());
+			add(e.getValue());
+		}
+
+		return this;
+	}
+
+	/**
+	 * Adds the given launcher meta or other json, in order of their keys.
+	 */
+	ContentDigest addJson(Map<String, JsonNode> json) {
+		add(json.size());
+
+		for (Map.Entry<String, JsonNode> e : new TreeMap<>(json).entrySet()) {
+			add(e.getKey());
+			add(e.getValue());
+		}
+
+		return this;
+	}
+
+	/**
+	 * Adds the versions of the given manifest, in order, with the fields that
+	 * responses read from them.
+	 */
+	ContentDigest add(VersionManifest manifest) {
+		List<VersionManifest.Version> versions = manifest.getVersions();
+		add(versions.size());
+
+		for (VersionManifest.Version version : versions) {
+			add(version.id);
+			add(version.type);
+			add(version.url);
+			add(version.releaseTime);
+			add((version.detailsSha1 == null) ? version.details : version.detailsSha1);
+		}
+
+		return this;
+	}
+
+	byte[] finish() {
+		return digest.digest();
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Everything the web server serves, as of one refresh. Snapshots are never
+ * modified once published, so a request that reads the current snapshot once
+ * sees a consistent view of both databases and the config, no matter how
+ * many refreshes happen while it is being handled.
+ */
+public final class MetaSnapshot {
+
+	// the number of refreshes that changed anything that are kept
+	private static final int CHANGE_HISTORY = 256;
+
+	/**
+	 * Increases by one with every published snapshot. The first snapshot
+	 * takes its publish time as id, so that ids are not reused by a later
+	 * run of the service.
+	 */
+	public final long id;
+	public final long publishTime;
+	/**
+	 * The publish time of the latest snapshot that changed anything, which
+	 * stays the same over refreshes that find nothing new.
+	 */
+	public final long lastModified;
+	public final VersionDatabaseOld v2;
+	public final VersionDatabase v3;
+	public final ConfigV3 config;
+	/**
+	 * The changes of recent refreshes that changed anything, oldest first,
+	 * which cover every snapshot since {@link #changesSince}.
+	 */
+	public final List<SnapshotChanges> changes;
+	public final long changesSince;
+
+	private MetaSnapshot(long id, long publishTime, long lastModified, VersionDatabaseOld v2, VersionDatabase v3, List<SnapshotChanges> changes, long changesSince) {
+		this.id = id;
+		this.publishTime = publishTime;
+		this.lastModified = lastModified;
+		this.v2 = v2;
+		this.v3 = v3;
+		this.config = v3.config;
+		this.changes = changes;
+		this.changesSince = changesSince;
+	}
+
+	/**
+	 * Creates the snapshot that succeeds the given one, which may be null if
+	 * nothing has been published yet.
+	 */
+	public static MetaSnapshot next(MetaSnapshot previous, VersionDatabaseOld v2, VersionDatabase v3) {
+		long publishTime = System.currentTimeMillis();
+
+		if (previous == null) {
+			return new MetaSnapshot(publishTime, publishTime, publishTime, v2, v3, Collections.emptyList(), publishTime);
+		}
+
+		long id = previous.id + 1;
+		SnapshotChanges latest = SnapshotChanges.between(previous, id, publishTime, v3);
+		List<SnapshotChanges> changes = previous.changes;
+		long changesSince = previous.changesSince;
+
+		if (!latest.isEmpty()) {
+			changes = new ArrayList<>(previous.changes);
+			changes.add(latest);
+
+			while (changes.size() > CHANGE_HISTORY) {
+				changesSince = changes.remove(0).to;
+			}
+
+			changes = Collections.unmodifiableList(changes);
+		}
+
+		// the changes only cover the versions, responses also depend on the
+		// poms, launcher meta and manifests, and on the local inputs
+		boolean modified = !latest.isEmpty()
+			|| !v2.hasSameContent(previous.v2)
+			|| !v3.hasSameContent(previous.v3)
+			|| v3.config != previous.v3.config
+			|| v3.libraryUpgrades != previous.v3.libraryUpgrades;
+
+		return new MetaSnapshot(id, publishTime, modified ? publishTime : previous.lastModified, v2, v3, changes, changesSince);
+	}
+
+	/**
+	 * @return the changes since the snapshot with the given id, or null if
+	 * they are no longer known, or the id is not of a snapshot of this run
+	 */
+	public List<SnapshotChanges> getChangesSince(long since) {
+		if (since < changesSince || since > id) {
+			return null;
+		}
+
+		int start = changes.size();
+
+		while (start > 0 && changes.get(start - 1).to > since) {
+			start--;
+		}
+
+		return changes.subList(start, changes.size());
+	}
+}
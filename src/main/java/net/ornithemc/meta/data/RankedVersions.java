@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import net.ornithemc.meta.utils.VersionManifest;
+import net.ornithemc.meta.web.models.BaseVersion;
+
+/**
+ * The versions of an artifact that is built for game versions, ordered by the
+ * release rank of their game version in one manifest, newest first, so that
+ * the versions for a range of game versions can be found by binary search.
+ * Versions for game versions that are not in the manifest are left out.
+ */
+public class RankedVersions<T extends BaseVersion> {
+
+	private final List<T> versions;
+	// the release rank of each version's game version, in descending order
+	private final int[] ranks;
+
+	public RankedVersions(List<T> versions, VersionManifest manifest) {
+		List<T> ranked = new ArrayList<>(versions);
+		ranked.removeIf(v -> manifest.rankOf(v.getVersionNoSide()) < 0);
+		// the sort is stable, so builds of a game version stay in order
+		ranked.sort(Comparator.comparingInt((T v) -> manifest.rankOf(v.getVersionNoSide())).reversed());
+
+		this.versions = Collections.unmodifiableList(ranked);
+		this.ranks = new int[ranked.size()];
+
+		for (int i = 0; i < ranks.length; i++) {
+			ranks[i] = manifest.rankOf(ranked.get(i).getVersionNoSide());
+		}
+	}
+
+	/**
+	 * @return the versions for game versions with a release rank between
+	 * the given ranks, inclusive, newest first
+	 */
+	public List<T> range(int fromRank, int toRank) {
+		if (fromRank > toRank) {
+			return Collections.emptyList();
+		}
+
+		return versions.subList(firstAtMost(toRank), firstAtMost(fromRank - 1));
+	}
+
+	// the index of the first version with at most the given rank
+	private int firstAtMost(int rank) {
+		int low = 0;
+		int high = ranks.length;
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+
+			if (ranks[mid] > rank) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+}
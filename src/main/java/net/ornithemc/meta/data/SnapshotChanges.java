@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import net.ornithemc.meta.web.models.BaseVersion;
+import net.ornithemc.meta.web.models.IntermediaryGenerations;
+import net.ornithemc.meta.web.models.LoaderType;
+
+/**
+ * The changes to the v3 database between two consecutive snapshots: for
+ * every artifact and generation, the versions that were added or removed and
+ * the versions whose stability flipped.
+ */
+@JsonInclude(Include.NON_NULL)
+public class SnapshotChanges {
+
+	public final long from;
+	public final long to;
+	public final long time;
+	// only set if the generations changed
+	public final IntermediaryGenerations intermediaryGenerations;
+	public final List<ArtifactChanges> artifacts;
+
+	private SnapshotChanges(long from, long to, long time, IntermediaryGenerations intermediaryGenerations, List<ArtifactChanges> artifacts) {
+		this.from = from;
+		this.to = to;
+		this.time = time;
+		this.intermediaryGenerations = intermediaryGenerations;
+		this.artifacts = artifacts;
+	}
+
+	/**
+	 * Computes the changes from the previous snapshot to the next one, which
+	 * has not been published yet and is given by its parts.
+	 */
+	static SnapshotChanges between(MetaSnapshot previous, long id, long publishTime, VersionDatabase next) {
+		VersionDatabase database = previous.v3;
+		IntermediaryGenerations generations = database.intermediaryGenerations;
+		IntermediaryGenerations nextGenerations = next.intermediaryGenerations;
+		List<ArtifactChanges> artifacts = new ArrayList<>();
+
+		int generationCount = Math.max(generations.latestIntermediaryGeneration, nextGenerations.latestIntermediaryGeneration);
+
+		for (int generation = 1; generation <= generationCount; generation++) {
+			boolean before = generation <= generations.latestIntermediaryGeneration;
+			boolean after = generation <= nextGenerations.latestIntermediaryGeneration;
+
+			diff(artifacts, "game", generation, before ? database.getGame(generation) : null, after ? next.getGame(generation) : null);
+			diff(artifacts, "intermediary", generation, before ? database.getIntermediary(generation) : null, after ? next.getIntermediary(generation) : null);
+			diff(artifacts, "feather", generation, before ? database.getFeather(generation) : null, after ? next.getFeather(generation) : null);
+			diff(artifacts, "osl", generation, before ? database.getOsl(generation) : null, after ? next.getOsl(generation) : null);
+
+			Set<String> modules = new LinkedHashSet<>();
+
+			if (before) {
+				modules.addAll(database.getOslModules(generation));
+			}
+			if (after) {
+				modules.addAll(next.getOslModules(generation));
+			}
+
+			for (String module : modules) {
+				diff(artifacts, "osl/" + module, generation, before ? database.getOslModule(generation, module) : null, after ? next.getOslModule(generation, module) : null);
+			}
+
+			diff(artifacts, "fabric-loader", generation, before ? database.getLoader(generation, LoaderType.FABRIC) : null, after ? next.getLoader(generation, LoaderType.FABRIC) : null);
+			diff(artifacts, "quilt-loader", generation, before ? database.getLoader(generation, LoaderType.QUILT) : null, after ? next.getLoader(generation, LoaderType.QUILT) : null);
+		}
+
+		diff(artifacts, "raven", 0, database.raven, next.raven);
+		diff(artifacts, "sparrow", 0, database.sparrow, next.sparrow);
+		diff(artifacts, "nests", 0, database.nests, next.nests);
+		diff(artifacts, "installer", 0, database.installer, next.installer);
+
+		boolean generationsChanged = generations.latestIntermediaryGeneration != nextGenerations.latestIntermediaryGeneration
+			|| generations.stableIntermediaryGeneration != nextGenerations.stableIntermediaryGeneration;
+
+		return new SnapshotChanges(previous.id, id, publishTime, generationsChanged ? nextGenerations : null, Collections.unmodifiableList(artifacts));
+	}
+
+	private static void diff(List<ArtifactChanges> artifacts, String artifact, int generation, List<? extends BaseVersion> previous, List<? extends BaseVersion> next) {
+		if (previous == next) {
+			return;
+		}
+
+		Map<String, BaseVersion> remaining = new HashMap<>();
+		List<BaseVersion> added = new ArrayList<>();
+		List<String> removed = new ArrayList<>();
+		List<BaseVersion> changed = new ArrayList<>();
+
+		if (previous != null) {
+			for (BaseVersion version : previous) {
+				remaining.put(version.getVersion(), version);
+			}
+		}
+		if (next != null) {
+			for (BaseVersion version : next) {
+				BaseVersion old = remaining.remove(version.getVersion());
+
+				if (old == null) {
+					added.add(version);
+				} else if (old.isStable() != version.isStable()) {
+					changed.add(version);
+				}
+			}
+		}
+		if (previous != null && !remaining.isEmpty()) {
+			for (BaseVersion version : previous) {
+				if (remaining.containsKey(version.getVersion())) {
+					removed.add(version.getVersion());
+				}
+			}
+		}
+
+		if (!added.isEmpty() || !removed.isEmpty() || !changed.isEmpty()) {
+			artifacts.add(new ArtifactChanges(artifact, (generation > 0) ? generation : null, added, removed, changed));
+		}
+	}
+
+	@JsonIgnore
+	public boolean isEmpty() {
+		return intermediaryGenerations == null && artifacts.isEmpty();
+	}
+
+	/**
+	 * The changes to one artifact. Added versions and versions whose stability
+	 * changed are given in full, in the order the artifact lists them in.
+	 */
+	@JsonInclude(Include.NON_EMPTY)
+	public static class ArtifactChanges {
+
+		public final String artifact;
+		// null for artifacts shared by all generations
+		public final Integer generation;
+		public final List<BaseVersion> added;
+		public final List<String> removed;
+		public final List<BaseVersion> stabilityChanged;
+
+		ArtifactChanges(String artifact, Integer generation, List<BaseVersion> added, List<String> removed, List<BaseVersion> stabilityChanged) {
+			this.artifact = artifact;
+			this.generation = generation;
+			this.added = added;
+			this.removed = removed;
+			this.stabilityChanged = stabilityChanged;
+		}
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vdurmont.semver4j.Semver;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.ornithemc.meta.utils.VersionManifest;
+
+/**
+ * The unstable intermediary versions of the config, compiled into ranges of
+ * normalized game versions per intermediary generation. The config is
+ * validated while compiling, so a mistake fails the refresh rather than the
+ * requests that would use it.
+ */
+public class UnstableIntermediaryRules {
+
+	private final Int2ObjectMap<List<Range>> ranges;
+
+	private UnstableIntermediaryRules(Int2ObjectMap<List<Range>> ranges) {
+		this.ranges = ranges;
+	}
+
+	public static UnstableIntermediaryRules compile(ConfigV3 config, Int2ObjectMap<VersionManifest> manifests) {
+		Int2ObjectMap<List<Range>> ranges = new Int2ObjectOpenHashMap<>();
+
+		if (!config.unstableIntermediaryVersions.isEmpty()) {
+			// unstable versions only apply to the latest generation
+			int generation = config.latestIntermediaryGeneration;
+			VersionManifest manifest = manifests.get(generation);
+			List<Range> generationRanges = new ArrayList<>();
+
+			for (UnstableIntermediaryVersion version : config.unstableIntermediaryVersions) {
+				generationRanges.add(compile(generation, manifest, version));
+			}
+
+			ranges.put(generation, generationRanges);
+		}
+
+		return new UnstableIntermediaryRules(ranges);
+	}
+
+	private static Range compile(int generation, VersionManifest manifest, UnstableIntermediaryVersion version) {
+		if (version.gameVersion != null && (version.minGameVersion != null || version.maxGameVersion != null)) {
+			throw new RuntimeException("cannot specify both an exact game version and game version bounds!");
+		}
+
+		if (version.gameVersion != null) {
+			Semver gameVersion = normalize(generation, manifest, version.gameVersion, "game version");
+			return new Range(gameVersion, gameVersion);
+		}
+
+		Semver minVersion = (version.minGameVersion == null) ? null : normalize(generation, manifest, version.minGameVersion, "minimum game version");
+		Semver maxVersion = (version.maxGameVersion == null) ? null : normalize(generation, manifest, version.maxGameVersion, "maximum game version");
+
+		if (minVersion != null && maxVersion != null && minVersion.compareTo(maxVersion) > 0) {
+			throw new RuntimeException("invalid game version bounds for unstable intermediary version (gen" + generation + "): (" + version.minGameVersion + " > " + version.maxGameVersion + ")");
+		}
+
+		return new Range(minVersion, maxVersion);
+	}
+
+	private static Semver normalize(int generation, VersionManifest manifest, String gameVersion, String description) {
+		Semver version = manifest.contains(gameVersion) ? manifest.normalize(gameVersion) : null;
+
+		if (version == null) {
+			throw new RuntimeException("unknown " + description + " for unstable intermediary version (gen" + generation + "): (" + gameVersion + ")");
+		}
+
+		return version;
+	}
+
+	/**
+	 * Checks whether intermediary for the given game version is stable. Only
+	 * game versions of generations with unstable versions are normalized.
+	 */
+	public boolean isStable(int generation, VersionManifest manifest, String gameVersion) {
+		List<Range> ranges = this.ranges.get(generation);
+
+		// versions missing from the manifest are dropped from the database anyway
+		if (ranges == null || !manifest.contains(gameVersion)) {
+			return true;
+		}
+
+		Semver version = manifest.normalize(gameVersion);
+
+		if (version == null) {
+			throw new RuntimeException("unable to normalize game version " + gameVersion + " (gen" + generation + ")");
+		}
+
+		for (Range range : ranges) {
+			if (range.contains(version)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static final class Range {
+
+		// either bound may be null, in which case the range is unbounded on that side
+		final Semver min;
+		final Semver max;
+
+		Range(Semver min, Semver max) {
+			this.min = min;
+			this.max = max;
+		}
+
+		boolean contains(Semver version) {
+			return (min == null || version.compareTo(min) >= 0) && (max == null || version.compareTo(max) <= 0);
+		}
+	}
+}
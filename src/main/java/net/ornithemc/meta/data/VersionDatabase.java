@@ -24,12 +24,17 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import net.ornithemc.meta.OrnitheMeta;
+import net.ornithemc.meta.metrics.RefreshTimer;
+import net.ornithemc.meta.utils.LoaderMetaV3;
 import net.ornithemc.meta.utils.MavenPomParser;
 import net.ornithemc.meta.utils.MavenMetadataParser;
 import net.ornithemc.meta.utils.MavenMetadataParser.StableVersionIdentifier;
+import net.ornithemc.meta.utils.Upstream;
 import net.ornithemc.meta.utils.VersionManifest;
 import net.ornithemc.meta.web.LibraryUpgradesV3;
 import net.ornithemc.meta.web.LibraryUpgradesV3.LibraryUpgrade;
+import net.ornithemc.meta.web.PrecomputedResponses;
+import net.ornithemc.meta.web.ProfileHandlerV3;
 import net.ornithemc.meta.web.models.*;
 
 import java.io.IOException;
@@ -41,6 +46,8 @@ import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+import javax.xml.stream.XMLStreamException;
+
 public class VersionDatabase {
 
 	public static final String FABRIC_MAVEN_URL = "https://maven.fabricmc.net/";
@@ -60,37 +67,35 @@ public class VersionDatabase {
 	private static final Pattern INVALID_FABRIC_LOADER_VERSIONS_GEN2 = Pattern.compile("^(?:0\\.(?:\\d|1[0-6])\\..+|0\\.17\\.[0-2])");
 	private static final Pattern INVALID_QUILT_LOADER_VERSIONS_GEN2 = Pattern.compile("^(?:0\\.(?:\\d|1\\d|2[0-8])\\..+|0\\.29\\.[0-2].*)");
 
-	public static ConfigV3 config;
-
 	private static final String modifyForIntermediaryGeneration(String s, int generation) {
 		return generation == 1 ? s : (s + "-gen" + generation);
 	}
 
-	private static final MavenMetadataParser generationalMavenMetadataParser(int generation, String groupId, String artifactId) {
+	private final MavenMetadataParser generationalMavenMetadataParser(int generation, String groupId, String artifactId) {
 		return new MavenMetadataParser(ORNITHE_MAVEN_URL, groupId, modifyForIntermediaryGeneration(artifactId, generation), generation <= config.stableIntermediaryGeneration);
 	}
 
-	private static final MavenPomParser generationalMavenPomParser(int generation, String groupId, String artifactId) {
+	private final MavenPomParser generationalMavenPomParser(int generation, String groupId, String artifactId) {
 		return new MavenPomParser(ORNITHE_MAVEN_URL, groupId, modifyForIntermediaryGeneration(artifactId, generation), generation <= config.stableIntermediaryGeneration);
 	}
 
-	public static final MavenMetadataParser intermediaryMetadataParser(int generation) {
+	public final MavenMetadataParser intermediaryMetadataParser(int generation) {
 		return generationalMavenMetadataParser(generation, "net.ornithemc", "calamus-intermediary");
 	}
 
-	public static final MavenMetadataParser featherMetadataParser(int generation) {
+	public final MavenMetadataParser featherMetadataParser(int generation) {
 		return generationalMavenMetadataParser(generation, "net.ornithemc", "feather");
 	}
 
-	public static final MavenMetadataParser oslMetadataParser(int generation) {
+	public final MavenMetadataParser oslMetadataParser(int generation) {
 		return generationalMavenMetadataParser(generation, "net.ornithemc", "osl");
 	}
 
-	public static final MavenPomParser oslPomParser(int generation) {
+	public final MavenPomParser oslPomParser(int generation) {
 		return generationalMavenPomParser(generation, "net.ornithemc", "osl");
 	}
 
-	public static final MavenMetadataParser oslModuleMetadataParser(int generation, String module) {
+	public final MavenMetadataParser oslModuleMetadataParser(int generation, String module) {
 		return new MavenMetadataParser(ORNITHE_MAVEN_URL, modifyForIntermediaryGeneration("net.ornithemc.osl", generation), module, generation <= config.stableIntermediaryGeneration);
 	}
 
@@ -107,18 +112,19 @@ public class VersionDatabase {
 
 	public static StableVersionIdentifier filterLoaderVersions(int generation, LoaderType loaderType) {
 		return versions -> {
-			boolean foundStableVersion = false;
+			String stableVersion = null;
 
-			for (Iterator<? extends BaseVersion> it = versions.iterator(); it.hasNext(); ) {
-				BaseVersion version = it.next();
+			for (Iterator<String> it = versions.iterator(); it.hasNext(); ) {
+				String version = it.next();
 
-				if (generation >= 2 && invalidLoaderVersionsPattern(loaderType).matcher(version.getVersion()).matches()) {
+				if (generation >= 2 && invalidLoaderVersionsPattern(loaderType).matcher(version).matches()) {
 					it.remove();
-				} else if (!foundStableVersion && isPublicLoaderVersion(loaderType, version)) {
-					foundStableVersion = true;
-					version.setStable(true);
+				} else if (stableVersion == null && isPublicLoaderVersion(loaderType, version)) {
+					stableVersion = version;
 				}
 			}
+
+			return (stableVersion == null) ? Collections.emptySet() : Collections.singleton(stableVersion);
 		};
 	}
 
@@ -126,7 +132,7 @@ public class VersionDatabase {
 		List<String> modules = new ArrayList<>();
 
 		try {
-			URL url = new URL(modifyForIntermediaryGeneration(ORNITHE_MAVEN_DETAILS_URL + "net/ornithemc/osl", generation));
+			URL url = Upstream.url(modifyForIntermediaryGeneration(ORNITHE_MAVEN_DETAILS_URL + "net/ornithemc/osl", generation));
 
 			try (InputStreamReader input = new InputStreamReader(url.openStream())) {
 				JsonNode json = OrnitheMeta.MAPPER.readTree(input);
@@ -159,6 +165,12 @@ public class VersionDatabase {
 		return modules;
 	}
 
+	final ConfigV3 config;
+	private final VersionInterner interner;
+	// the versions read from each artifact's maven metadata, kept so they can be reused
+	private final Map<String, List<String>> upstreamVersions;
+	private UnstableIntermediaryRules unstableIntermediaryRules;
+
 	private final Int2ObjectMap<VersionManifest> manifests;
 	private final Int2ObjectMap<List<BaseVersion>> game;
 	private final Int2ObjectMap<List<MavenVersion>> intermediary;
@@ -166,8 +178,34 @@ public class VersionDatabase {
 	private final Int2ObjectMap<List<MavenVersion>> osl;
 	private final Int2ObjectMap<Map<String, List<MavenVersion>>> oslDependencies;
 	private final Int2ObjectMap<Map<String, List<MavenVersion>>> oslModules;
+	// the direct osl dependencies of each module version that is depended on, by
+	// maven coordinate, or null for those whose pom could not be read
+	private final Int2ObjectMap<Map<String, List<MavenVersion>>> oslModuleDependencies;
 	private final Int2ObjectMap<Map<LoaderType, List<MavenBuildVersion>>> loader;
 
+	// lookup indexes, built once the database is complete
+	private final Int2ObjectMap<Map<String, MavenVersion>> intermediaryByGameVersion;
+	private final Int2ObjectMap<Map<LoaderType, Map<String, MavenBuildVersion>>> loaderByVersion;
+	// the transitive osl dependencies of each osl version, and of each module by maven coordinate,
+	// or null for those that depend on a module whose pom could not be read
+	private final Int2ObjectMap<Map<String, List<MavenVersion>>> oslClosures;
+	private final Int2ObjectMap<Map<String, List<MavenVersion>>> oslModuleClosures;
+	// the versions of each artifact built for game versions, by release rank
+	private final Int2ObjectMap<Map<String, RankedVersions<?>>> rankedVersions;
+	// the versions of generationless artifacts, ranked for the stable generation only
+	private final Map<String, RankedVersions<?>> stableRankedVersions;
+	// the entries of every maven coordinate in the database
+	private final Map<String, List<LookupEntry>> lookupIndex;
+
+	// the launcher meta of every loader version that has it, by maven coordinate
+	private Map<String, JsonNode> launcherMeta;
+
+	// a digest of everything the responses depend on, see hasSameContent
+	private byte[] contentDigest;
+
+	// serialized before the database is published, and discarded with it
+	public final PrecomputedResponses precomputed;
+
 	public IntermediaryGenerations intermediaryGenerations;
 	public List<MavenBuildGameVersion> raven;
 	public List<MavenBuildGameVersion> sparrow;
@@ -175,7 +213,10 @@ public class VersionDatabase {
 	public List<MavenUrlVersion> installer;
 	public List<LibraryUpgrade> libraryUpgrades;
 
-	private VersionDatabase() {
+	private VersionDatabase(ConfigV3 config, VersionDatabase previous) {
+		this.config = config;
+		this.interner = new VersionInterner((previous == null) ? null : previous.interner);
+		this.upstreamVersions = new HashMap<>();
 		this.manifests = new Int2ObjectOpenHashMap<>();
 		this.game = new Int2ObjectOpenHashMap<>();
 		this.intermediary = new Int2ObjectOpenHashMap<>();
@@ -183,44 +224,121 @@ public class VersionDatabase {
 		this.osl = new Int2ObjectOpenHashMap<>();
 		this.oslDependencies = new Int2ObjectOpenHashMap<>();
 		this.oslModules = new Int2ObjectOpenHashMap<>();
+		this.oslModuleDependencies = new Int2ObjectOpenHashMap<>();
 		this.loader = new Int2ObjectOpenHashMap<>();
+		this.intermediaryByGameVersion = new Int2ObjectOpenHashMap<>();
+		this.loaderByVersion = new Int2ObjectOpenHashMap<>();
+		this.oslClosures = new Int2ObjectOpenHashMap<>();
+		this.oslModuleClosures = new Int2ObjectOpenHashMap<>();
+		this.rankedVersions = new Int2ObjectOpenHashMap<>();
+		this.stableRankedVersions = new HashMap<>();
+		this.lookupIndex = new HashMap<>();
+		this.precomputed = new PrecomputedResponses();
+	}
+
+	/**
+	 * Generates a new database. Versions that are unchanged since the given
+	 * previous database, if any, share their models with it.
+	 */
+	public static VersionDatabase generate(VersionDatabase previous) throws Exception {
+		return generate(previous, false);
 	}
 
-	public static VersionDatabase generate() throws Exception {
+	/**
+	 * Generates a new database. If {@code reuseUpstream} is set, the upstream
+	 * data of the previous database is reused wherever it is available, so
+	 * that changes to the local inputs can be applied without a full refresh.
+	 */
+	public static VersionDatabase generate(VersionDatabase previous, boolean reuseUpstream) throws Exception {
 		long start = System.currentTimeMillis();
-		VersionDatabase database = new VersionDatabase();
-		config = ConfigV3.load();
+		RefreshTimer timer = new RefreshTimer(reuseUpstream ? "v3/reload/" : "v3/");
+		ConfigV3 config = timer.time("config", ConfigV3::load);
+		VersionDatabase database = new VersionDatabase(config, previous);
+		VersionDatabase upstream = reuseUpstream ? previous : null;
+		VersionInterner interner = database.interner;
+		// the manifests are needed to compile the unstable intermediary versions
 		for (int generation = 1; generation <= config.latestIntermediaryGeneration; generation++) {
-			database.manifests.put(generation, VersionManifest.forGenSorted(generation));
-			database.intermediary.put(generation, intermediaryMetadataParser(generation).getVersions(MavenVersion::new));
-			database.feather.put(generation, featherMetadataParser(generation).getVersions(MavenBuildGameVersion::new));
-			database.osl.put(generation, oslMetadataParser(generation).getVersions(MavenVersion::new));
+			int gen = generation;
+			VersionManifest manifest = (upstream == null) ? null : upstream.manifests.get(generation);
+			database.manifests.put(generation, (manifest != null) ? manifest : timer.time("manifest", () -> VersionManifest.forGenSorted(gen)));
+		}
+		database.unstableIntermediaryRules = timer.time("manifest", () -> UnstableIntermediaryRules.compile(config, database.manifests));
+		for (int generation = 1; generation <= config.latestIntermediaryGeneration; generation++) {
+			int gen = generation;
+			MavenMetadataParser intermediaryParser = database.intermediaryMetadataParser(gen);
+			MavenMetadataParser featherParser = database.featherMetadataParser(gen);
+			MavenMetadataParser oslParser = database.oslMetadataParser(gen);
+			database.intermediary.put(generation, intermediaryParser.getVersionsWithStability(database.readVersions(upstream, timer, "intermediary", intermediaryParser), interner.factory(MavenVersion.class, MavenVersion::new), v -> database.isIntermediaryStable(gen, BaseVersion.stripSide(v))));
+			database.feather.put(generation, featherParser.getVersionsWithStability(database.readVersions(upstream, timer, "feather", featherParser), interner.factory(MavenBuildGameVersion.class, MavenBuildGameVersion::new), v -> true));
+			database.osl.put(generation, oslParser.getVersions(database.readVersions(upstream, timer, "osl", oslParser), interner.factory(MavenVersion.class, MavenVersion::new), StableVersionIdentifier.LATEST));
 			database.oslDependencies.put(generation, new HashMap<>());
 			database.oslModules.put(generation, new HashMap<>());
+			Map<String, List<MavenVersion>> upstreamDependencies = (upstream == null) ? null : upstream.oslDependencies.get(generation);
 			for (MavenVersion version : database.osl.get(generation)) {
-				database.oslDependencies.get(generation).put(version.getVersion(), oslPomParser(generation).getDependencies(MavenVersion::new, version.getVersion(), v -> {
-					return v.getMaven().startsWith("net.ornithemc.osl");
-				}));
+				List<MavenVersion> dependencies = (upstreamDependencies == null) ? null : upstreamDependencies.get(version.getVersion());
+				if (dependencies == null) {
+					dependencies = timer.time("osl-dependencies", () -> database.oslPomParser(gen).getDependencies(maven -> interner.intern(MavenVersion.class, maven, false, MavenVersion::new), version.getVersion(), v -> {
+						return v.getMaven().startsWith("net.ornithemc.osl");
+					}));
+				}
+				database.oslDependencies.get(generation).put(version.getVersion(), dependencies);
 			}
-			for (String module : oslModules(generation)) {
-				database.oslModules.get(generation).put(module, oslModuleMetadataParser(generation, module).getVersions(MavenVersion::new));
+			database.oslModuleDependencies.put(generation, timer.time("osl-module-dependencies", () -> database.readOslModuleDependencies(previous, gen)));
+			Map<String, List<MavenVersion>> upstreamModules = (upstream == null) ? null : upstream.oslModules.get(generation);
+			for (String module : (upstreamModules != null) ? upstreamModules.keySet() : timer.time("osl-modules", () -> oslModules(gen))) {
+				MavenMetadataParser moduleParser = database.oslModuleMetadataParser(gen, module);
+				database.oslModules.get(generation).put(module, moduleParser.getVersions(database.readVersions(upstream, timer, "osl-modules", moduleParser), interner.factory(MavenVersion.class, MavenVersion::new), StableVersionIdentifier.LATEST));
 			}
 			database.loader.put(generation, new EnumMap<>(LoaderType.class));
-			database.loader.get(generation).put(LoaderType.FABRIC, FABRIC_LOADER_METADATA_PARSER.getVersions(MavenBuildVersion::new, filterLoaderVersions(generation, LoaderType.FABRIC)));
-			database.loader.get(generation).put(LoaderType.QUILT, QUILT_LOADER_METADATA_PARSER.getVersions(MavenBuildVersion::new, filterLoaderVersions(generation, LoaderType.QUILT)));
+			database.loader.get(generation).put(LoaderType.FABRIC, FABRIC_LOADER_METADATA_PARSER.getVersions(database.readVersions(upstream, timer, "fabric-loader", FABRIC_LOADER_METADATA_PARSER), interner.factory(MavenBuildVersion.class, MavenBuildVersion::new), filterLoaderVersions(gen, LoaderType.FABRIC)));
+			database.loader.get(generation).put(LoaderType.QUILT, QUILT_LOADER_METADATA_PARSER.getVersions(database.readVersions(upstream, timer, "quilt-loader", QUILT_LOADER_METADATA_PARSER), interner.factory(MavenBuildVersion.class, MavenBuildVersion::new), filterLoaderVersions(gen, LoaderType.QUILT)));
 		}
 		database.intermediaryGenerations = new IntermediaryGenerations(config.latestIntermediaryGeneration, config.stableIntermediaryGeneration);
-		database.raven = RAVEN_METADATA_PARSER.getVersions(MavenBuildGameVersion::new);
-		database.sparrow = SPARROW_METADATA_PARSER.getVersions(MavenBuildGameVersion::new);
-		database.nests = NESTS_METADATA_PARSER.getVersions(MavenBuildGameVersion::new);
-		database.installer = INSTALLER_METADATA_PARSER.getVersions(MavenUrlVersion::new);
-		database.libraryUpgrades = LibraryUpgradesV3.reload();
+		database.raven = RAVEN_METADATA_PARSER.getVersionsWithStability(database.readVersions(upstream, timer, "raven", RAVEN_METADATA_PARSER), interner.factory(MavenBuildGameVersion.class, MavenBuildGameVersion::new), v -> true);
+		database.sparrow = SPARROW_METADATA_PARSER.getVersionsWithStability(database.readVersions(upstream, timer, "sparrow", SPARROW_METADATA_PARSER), interner.factory(MavenBuildGameVersion.class, MavenBuildGameVersion::new), v -> true);
+		database.nests = NESTS_METADATA_PARSER.getVersionsWithStability(database.readVersions(upstream, timer, "nests", NESTS_METADATA_PARSER), interner.factory(MavenBuildGameVersion.class, MavenBuildGameVersion::new), v -> true);
+		database.installer = INSTALLER_METADATA_PARSER.getVersions(database.readVersions(upstream, timer, "installer", INSTALLER_METADATA_PARSER), interner.factory(MavenUrlVersion.class, MavenUrlVersion::new), StableVersionIdentifier.LATEST);
+		database.libraryUpgrades = timer.time("library-upgrades", LibraryUpgradesV3::reload);
 		database.loadMcData();
-		OrnitheMeta.LOGGER.info("DB update took {}ms", System.currentTimeMillis() - start);
+		timer.time("logging-config", () -> {
+			database.prefetchLoggingConfigs();
+			return null;
+		});
+		if (database.libraryUpgrades != null) {
+			for (LibraryUpgrade upgrade : database.libraryUpgrades) {
+				upgrade.validate(database);
+			}
+		}
+		database.buildIndexes();
+		timer.time("launcher-meta", () -> {
+			// a reload only reads the launcher meta of loader versions it did not have yet
+			database.loadLauncherMeta(previous, upstream == null);
+			return null;
+		});
+		database.contentDigest = timer.time("digest", database::digest);
+		interner.finish();
+		timer.finish();
+		OrnitheMeta.LOGGER.info("DB {} took {}ms", reuseUpstream ? "reload" : "update", System.currentTimeMillis() - start);
 		return database;
 	}
 
-	private static boolean isPublicLoaderVersion(LoaderType type, BaseVersion version) {
+	// artifacts shared between generations are only read once per refresh
+	private List<String> readVersions(VersionDatabase upstream, RefreshTimer timer, String source, MavenMetadataParser parser) throws Exception {
+		String artifact = parser.groupId + ":" + parser.artifactId;
+		List<String> versions = upstreamVersions.get(artifact);
+
+		if (versions == null && upstream != null) {
+			versions = upstream.upstreamVersions.get(artifact);
+		}
+		if (versions == null) {
+			versions = timer.time(source, parser::readVersions);
+		}
+
+		upstreamVersions.put(artifact, versions);
+		return versions;
+	}
+
+	private static boolean isPublicLoaderVersion(LoaderType type, String version) {
 		return true;
 	}
 
@@ -236,7 +354,6 @@ public class VersionDatabase {
 				// Sorts in the order of minecraft release dates
 				value = new ArrayList<>(value);
 				value.sort(Comparator.comparingInt(o -> manifest.indexOf(o.getVersionNoSide())));
-				value.forEach(version -> version.setStable(isIntermediaryStable(gen, version)));
 
 				// Remove entries that do not match a valid mc version.
 				value.removeIf(o -> {
@@ -253,7 +370,6 @@ public class VersionDatabase {
 				// Sorts in the order of minecraft release dates
 				value = new ArrayList<>(value);
 				value.sort(Comparator.comparingInt(o -> manifest.indexOf(o.getVersionNoSide())));
-				value.forEach(version -> version.setStable(true));
 
 				// Remove entries that do not match a valid mc version.
 				value.removeIf(o -> {
@@ -274,7 +390,7 @@ public class VersionDatabase {
 				}
 			}
 
-			game.put(generation, minecraftVersions.stream().map(s -> new BaseVersion(s, manifest.isStable(s))).collect(Collectors.toList()));
+			game.put(generation, minecraftVersions.stream().map(s -> interner.intern(BaseVersion.class, s, manifest.isStable(s), BaseVersion::new)).collect(Collectors.toList()));
 		}
 
 		Function<String, Predicate<MavenBuildGameVersion>> p = src -> {
@@ -301,21 +417,246 @@ public class VersionDatabase {
 
 		raven = new ArrayList<>(raven);
 		raven.sort(c);
-		raven.forEach(version -> version.setStable(true));
 		sparrow = new ArrayList<>(sparrow);
 		sparrow.sort(c);
-		sparrow.forEach(version -> version.setStable(true));
 		nests = new ArrayList<>(nests);
 		nests.sort(c);
-		nests.forEach(version -> version.setStable(true));
 
 		raven.removeIf(p.apply("v3 raven"));
 		sparrow.removeIf(p.apply("v3 sparrow"));
 		nests.removeIf(p.apply("v3 nests"));
 	}
 
-	private boolean isIntermediaryStable(int generation, MavenVersion version) {
-		return config.unstableIntermediaryVersions.stream().noneMatch(uv -> uv.test(generation, version.getVersionNoSide()));
+	private void buildIndexes() {
+		for (int generation = 1; generation <= config.latestIntermediaryGeneration; generation++) {
+			for (MavenVersion version : intermediary.get(generation)) {
+				index("intermediary", generation, version.getVersion(), version);
+			}
+			for (MavenBuildGameVersion version : feather.get(generation)) {
+				index("feather", generation, version.getGameVersion(), version);
+			}
+			for (MavenVersion version : osl.get(generation)) {
+				index("osl", generation, null, version);
+			}
+			for (Map.Entry<String, List<MavenVersion>> e : oslModules.get(generation).entrySet()) {
+				for (MavenVersion version : e.getValue()) {
+					index("osl/" + e.getKey(), generation, null, version);
+				}
+			}
+			for (Map.Entry<LoaderType, List<MavenBuildVersion>> e : loader.get(generation).entrySet()) {
+				for (MavenBuildVersion version : e.getValue()) {
+					index(e.getKey().getName() + "-loader", generation, null, version);
+				}
+			}
+
+			Map<String, MavenVersion> intermediaryIndex = new HashMap<>();
+			for (MavenVersion version : intermediary.get(generation)) {
+				intermediaryIndex.putIfAbsent(version.getVersion(), version);
+			}
+			intermediaryByGameVersion.put(generation, intermediaryIndex);
+
+			Map<LoaderType, Map<String, MavenBuildVersion>> loaderIndex = new EnumMap<>(LoaderType.class);
+			for (Map.Entry<LoaderType, List<MavenBuildVersion>> e : loader.get(generation).entrySet()) {
+				Map<String, MavenBuildVersion> versions = new HashMap<>();
+				for (MavenBuildVersion version : e.getValue()) {
+					versions.putIfAbsent(version.getVersion(), version);
+				}
+				loaderIndex.put(e.getKey(), versions);
+			}
+			loaderByVersion.put(generation, loaderIndex);
+
+			VersionManifest manifest = manifests.get(generation);
+			Map<String, RankedVersions<?>> ranked = new HashMap<>();
+			ranked.put("intermediary", new RankedVersions<>(intermediary.get(generation), manifest));
+			ranked.put("feather", new RankedVersions<>(feather.get(generation), manifest));
+			rankedVersions.put(generation, ranked);
+
+			Map<String, List<MavenVersion>> graph = oslModuleDependencies.get(generation);
+			Map<String, List<MavenVersion>> closures = new HashMap<>();
+			for (Map.Entry<String, List<MavenVersion>> e : oslDependencies.get(generation).entrySet()) {
+				closures.put(e.getKey(), closure(e.getValue(), graph));
+			}
+			oslClosures.put(generation, closures);
+
+			Map<String, List<MavenVersion>> moduleClosures = new HashMap<>();
+			for (Map.Entry<String, List<MavenVersion>> e : graph.entrySet()) {
+				moduleClosures.put(e.getKey(), (e.getValue() == null) ? null : closure(e.getValue(), graph));
+			}
+			oslModuleClosures.put(generation, moduleClosures);
+		}
+
+		VersionManifest stableManifest = manifests.get(intermediaryGenerations.stableIntermediaryGeneration);
+		stableRankedVersions.put("raven", new RankedVersions<>(raven, stableManifest));
+		stableRankedVersions.put("sparrow", new RankedVersions<>(sparrow, stableManifest));
+		stableRankedVersions.put("nests", new RankedVersions<>(nests, stableManifest));
+
+		for (MavenBuildGameVersion version : raven) {
+			index("raven", null, version.getGameVersion(), version);
+		}
+		for (MavenBuildGameVersion version : sparrow) {
+			index("sparrow", null, version.getGameVersion(), version);
+		}
+		for (MavenBuildGameVersion version : nests) {
+			index("nests", null, version.getGameVersion(), version);
+		}
+		for (MavenUrlVersion version : installer) {
+			index("installer", null, null, version);
+		}
+	}
+
+	private void index(String artifact, Integer generation, String gameVersion, MavenVersion version) {
+		lookupIndex.computeIfAbsent(version.getMaven(), maven -> new ArrayList<>()).add(new LookupEntry(artifact, generation, gameVersion, version));
+	}
+
+	/**
+	 * Reads the poms of all osl module versions that osl versions depend on,
+	 * directly or transitively. Released poms do not change, so those read
+	 * by the previous database are reused, even on a full refresh.
+	 */
+	private Map<String, List<MavenVersion>> readOslModuleDependencies(VersionDatabase previous, int generation) {
+		Map<String, List<MavenVersion>> known = (previous == null) ? null : previous.oslModuleDependencies.get(generation);
+		Map<String, List<MavenVersion>> dependencies = new HashMap<>();
+		Deque<MavenVersion> queue = new ArrayDeque<>();
+
+		for (List<MavenVersion> direct : oslDependencies.get(generation).values()) {
+			queue.addAll(direct);
+		}
+
+		while (!queue.isEmpty()) {
+			MavenVersion module = queue.poll();
+			String maven = module.getMaven();
+
+			if (dependencies.containsKey(maven)) {
+				continue;
+			}
+
+			List<MavenVersion> direct = (known == null) ? null : known.get(maven);
+
+			if (direct == null) {
+				MavenCoordinate coordinate = module.getCoordinate();
+				MavenPomParser parser = new MavenPomParser(ORNITHE_MAVEN_URL, coordinate.getGroup(), coordinate.getArtifact());
+
+				try {
+					direct = parser.getDependencies(m -> interner.intern(MavenVersion.class, m, false, MavenVersion::new), module.getVersion(), v -> {
+						return v.getMaven().startsWith("net.ornithemc.osl");
+					});
+				} catch (IOException | XMLStreamException e) {
+					// tried again on the next refresh
+					OrnitheMeta.LOGGER.warn("Failed to read the dependencies of {}: {}", maven, e.getMessage());
+				}
+			}
+
+			dependencies.put(maven, direct);
+
+			if (direct != null) {
+				queue.addAll(direct);
+			}
+		}
+
+		return dependencies;
+	}
+
+	/**
+	 * @return the given dependencies and all of their dependencies in the
+	 * given graph, breadth first, or null if the pom of any of them could not
+	 * be read, as the closure would be incomplete
+	 */
+	private static List<MavenVersion> closure(List<MavenVersion> direct, Map<String, List<MavenVersion>> graph) {
+		Map<String, MavenVersion> closure = new LinkedHashMap<>();
+		Deque<MavenVersion> queue = new ArrayDeque<>(direct);
+
+		while (!queue.isEmpty()) {
+			MavenVersion module = queue.poll();
+
+			if (closure.putIfAbsent(module.getMaven(), module) == null) {
+				List<MavenVersion> dependencies = graph.get(module.getMaven());
+
+				if (dependencies == null) {
+					return null;
+				}
+
+				queue.addAll(dependencies);
+			}
+		}
+
+		return Collections.unmodifiableList(new ArrayList<>(closure.values()));
+	}
+
+	private void prefetchLoggingConfigs() {
+		for (int generation = 1; generation <= config.latestIntermediaryGeneration; generation++) {
+			try {
+				manifests.get(generation).prefetchLoggingConfig(ProfileHandlerV3.LOGGING_CONFIG_VERSION);
+			} catch (IOException e) {
+				// tried again on the next refresh
+				OrnitheMeta.LOGGER.warn("Failed to read the logging config for gen{}: {}", generation, e.getMessage());
+			}
+		}
+	}
+
+	private void loadLauncherMeta(VersionDatabase previous, boolean prefetch) throws InterruptedException {
+		launcherMeta = new HashMap<>();
+
+		for (LoaderType type : new LoaderType[] { LoaderType.FABRIC, LoaderType.QUILT }) {
+			Set<MavenBuildVersion> versions = new LinkedHashSet<>();
+
+			for (Map<LoaderType, List<MavenBuildVersion>> loaders : loader.values()) {
+				versions.addAll(loaders.get(type));
+			}
+
+			Set<String> downloaded = prefetch ? LoaderMetaV3.prefetch(type, versions) : Collections.emptySet();
+			launcherMeta.putAll(LoaderMetaV3.load(versions, (previous == null) ? null : previous.launcherMeta, downloaded));
+		}
+	}
+
+	/**
+	 * @return the launcher meta of the given loader version, or null if it is
+	 * not available. The json is shared and must not be modified.
+	 */
+	public JsonNode getLauncherMeta(MavenVersion loader) {
+		return launcherMeta.get(loader.getMaven());
+	}
+
+	private byte[] digest() {
+		ContentDigest digest = new ContentDigest();
+		digest.add(intermediaryGenerations.latestIntermediaryGeneration);
+		digest.add(intermediaryGenerations.stableIntermediaryGeneration);
+
+		for (int generation = 1; generation <= config.latestIntermediaryGeneration; generation++) {
+			VersionManifest manifest = manifests.get(generation);
+			digest.add(manifest);
+			digest.add(manifest.getLoggingConfig(ProfileHandlerV3.LOGGING_CONFIG_VERSION));
+			digest.add(game.get(generation));
+			digest.add(intermediary.get(generation));
+			digest.add(feather.get(generation));
+			digest.add(osl.get(generation));
+			digest.add(oslDependencies.get(generation));
+			digest.add(oslModules.get(generation));
+			digest.add(oslModuleDependencies.get(generation));
+			digest.add(loader.get(generation).get(LoaderType.FABRIC));
+			digest.add(loader.get(generation).get(LoaderType.QUILT));
+		}
+
+		digest.add(raven);
+		digest.add(sparrow);
+		digest.add(nests);
+		digest.add(installer);
+		digest.addJson(launcherMeta);
+
+		return digest.finish();
+	}
+
+	/**
+	 * @return whether every response derived from the given database is the
+	 * same as for this one, apart from those that depend on the config and
+	 * library upgrades, which are compared by identity instead as they are
+	 * shared until their files change
+	 */
+	public boolean hasSameContent(VersionDatabase other) {
+		return Arrays.equals(contentDigest, other.contentDigest);
+	}
+
+	private boolean isIntermediaryStable(int generation, String gameVersion) {
+		return unstableIntermediaryRules.isStable(generation, manifests.get(generation), gameVersion);
 	}
 
 	public VersionManifest getManifest(int generation) {
@@ -342,15 +683,87 @@ public class VersionDatabase {
 		return oslDependencies.get(generation).get(version);
 	}
 
+	/**
+	 * @return all osl modules that the given osl version depends on, directly
+	 * or transitively
+	 *
+	 * @throws IllegalStateException if the closure is incomplete, because the
+	 * pom of one of those modules could not be read
+	 */
+	public List<MavenVersion> getOslClosure(int generation, String version) {
+		return getComplete(oslClosures.get(generation), version);
+	}
+
+	/**
+	 * @return all osl modules that the given version of the given module
+	 * depends on, directly or transitively, or null if no osl version
+	 * depends on that module version
+	 *
+	 * @throws IllegalStateException if the closure is incomplete, because the
+	 * pom of one of those modules could not be read
+	 */
+	public List<MavenVersion> getOslModuleClosure(int generation, String module, String version) {
+		return getComplete(oslModuleClosures.get(generation), modifyForIntermediaryGeneration("net.ornithemc.osl", generation) + ":" + module + ":" + version);
+	}
+
+	private static List<MavenVersion> getComplete(Map<String, List<MavenVersion>> closures, String key) {
+		List<MavenVersion> closure = closures.get(key);
+
+		if (closure == null && closures.containsKey(key)) {
+			throw new IllegalStateException("the osl dependencies of " + key + " could not all be read");
+		}
+
+		return closure;
+	}
+
+	/**
+	 * @return where the given maven coordinate appears in this database, or
+	 * null if it does not
+	 */
+	public List<LookupEntry> lookup(String maven) {
+		return lookupIndex.get(maven);
+	}
+
+	public Map<String, List<LookupEntry>> getLookupIndex() {
+		return Collections.unmodifiableMap(lookupIndex);
+	}
+
+	/**
+	 * @return the versions of the given artifact for game versions between
+	 * the given ranks in the manifest of the given generation, inclusive.
+	 * Generationless artifacts are only ranked for the stable generation.
+	 */
+	public List<? extends BaseVersion> getGameVersionRange(int generation, String artifact, int fromRank, int toRank) {
+		RankedVersions<?> ranked = rankedVersions.get(generation).get(artifact);
+
+		if (ranked == null) {
+			ranked = stableRankedVersions.get(artifact);
+		}
+
+		return ranked.range(fromRank, toRank);
+	}
+
+	public Set<String> getOslModules(int generation) {
+		return Collections.unmodifiableSet(oslModules.get(generation).keySet());
+	}
+
 	public List<MavenVersion> getOslModule(int generation, String module) {
 		return oslModules.get(generation).get(module);
 	}
 
 	public List<MavenBuildVersion> getLoader(int generation, LoaderType type) {
-		return loader.get(generation).get(type).stream().filter(v -> isPublicLoaderVersion(type, v)).collect(Collectors.toList());
+		return loader.get(generation).get(type).stream().filter(v -> isPublicLoaderVersion(type, v.getVersion())).collect(Collectors.toList());
 	}
 
 	public List<MavenBuildVersion> getAllLoader(int generation, LoaderType type) {
 		return Collections.unmodifiableList(loader.get(generation).get(type));
 	}
+
+	public MavenVersion findIntermediary(int generation, String gameVersion) {
+		return intermediaryByGameVersion.get(generation).get(gameVersion);
+	}
+
+	public MavenBuildVersion findLoader(int generation, LoaderType type, String loaderVersion) {
+		return loaderByVersion.get(generation).get(type).get(loaderVersion);
+	}
 }
@@ -18,20 +18,27 @@
 
 package net.ornithemc.meta.data;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import net.ornithemc.meta.OrnitheMeta;
+import net.ornithemc.meta.metrics.RefreshTimer;
+import net.ornithemc.meta.utils.LoaderMetaV2;
 import net.ornithemc.meta.utils.MavenMetadataParser;
+import net.ornithemc.meta.utils.MavenMetadataParser.StableVersionIdentifier;
 import net.ornithemc.meta.utils.VersionManifest;
 import net.ornithemc.meta.web.models.BaseVersion;
 import net.ornithemc.meta.web.models.MavenBuildVersion;
 import net.ornithemc.meta.web.models.MavenUrlVersion;
 import net.ornithemc.meta.web.models.MavenVersion;
 
-import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class VersionDatabaseOld {
@@ -47,37 +54,80 @@ public class VersionDatabaseOld {
 	private List<MavenBuildVersion> loader;
 	public List<MavenUrlVersion> installer;
 
-	private VersionDatabaseOld() {
+	private final VersionInterner interner;
+	// the versions read from each artifact's maven metadata, kept so they can be reused
+	private final Map<String, List<String>> upstreamVersions;
+	private VersionManifest manifest;
+	// the launcher meta of every loader version that has it, by maven coordinate
+	private Map<String, JsonNode> launcherMeta;
+	// a digest of everything the responses depend on, see hasSameContent
+	private byte[] contentDigest;
+
+	private VersionDatabaseOld(VersionDatabaseOld previous) {
+		this.interner = new VersionInterner((previous == null) ? null : previous.interner);
+		this.upstreamVersions = new HashMap<>();
 	}
 
-	public static VersionDatabaseOld generate() throws IOException, XMLStreamException {
+	public static VersionDatabaseOld generate(VersionDatabaseOld previous) throws Exception {
+		return generate(previous, false);
+	}
+
+	/**
+	 * Generates a new database. If {@code reuseUpstream} is set, the upstream
+	 * data of the previous database is reused wherever it is available.
+	 */
+	public static VersionDatabaseOld generate(VersionDatabaseOld previous, boolean reuseUpstream) throws Exception {
 		long start = System.currentTimeMillis();
-		VersionDatabaseOld database = new VersionDatabaseOld();
-		database.calamus = CALAMUS_PARSER.getVersions(MavenVersion::new);
-		database.loader = LOADER_PARSER.getVersions(MavenBuildVersion::new, list -> {
-			for (BaseVersion version : list) {
+		RefreshTimer timer = new RefreshTimer(reuseUpstream ? "v2/reload/" : "v2/");
+		VersionDatabaseOld database = new VersionDatabaseOld(previous);
+		VersionDatabaseOld upstream = reuseUpstream ? previous : null;
+		VersionInterner interner = database.interner;
+		database.manifest = (upstream == null) ? VersionManifest.forGenSorted(1) : upstream.manifest;
+		database.calamus = CALAMUS_PARSER.getVersionsWithStability(database.readVersions(upstream, timer, "calamus", CALAMUS_PARSER), interner.factory(MavenVersion.class, MavenVersion::new), v -> true);
+		database.loader = LOADER_PARSER.getVersions(database.readVersions(upstream, timer, "loader", LOADER_PARSER), interner.factory(MavenBuildVersion.class, MavenBuildVersion::new), list -> {
+			for (String version : list) {
 				if (isPublicLoaderVersion(version)) {
-					version.setStable(true);
-					break;
+					return Collections.singleton(version);
 				}
 			}
+
+			return Collections.emptySet();
 		});
-		database.installer = INSTALLER_PARSER.getVersions(MavenUrlVersion::new);
+		database.installer = INSTALLER_PARSER.getVersions(database.readVersions(upstream, timer, "installer", INSTALLER_PARSER), interner.factory(MavenUrlVersion.class, MavenUrlVersion::new), StableVersionIdentifier.LATEST);
 		database.loadMcData();
-		OrnitheMeta.LOGGER.info("DB update took {}ms", System.currentTimeMillis() - start);
+		timer.time("launcher-meta", () -> {
+			// a reload only reads the launcher meta of loader versions it did not have yet
+			Set<String> downloaded = (upstream == null) ? LoaderMetaV2.prefetch(database.loader) : Collections.emptySet();
+			database.launcherMeta = LoaderMetaV2.load(database.loader, (previous == null) ? null : previous.launcherMeta, downloaded);
+			return null;
+		});
+		database.contentDigest = timer.time("digest", database::digest);
+		interner.finish();
+		timer.finish();
+		OrnitheMeta.LOGGER.info("DB {} took {}ms", reuseUpstream ? "reload" : "update", System.currentTimeMillis() - start);
 		return database;
 	}
 
+	private List<String> readVersions(VersionDatabaseOld upstream, RefreshTimer timer, String source, MavenMetadataParser parser) throws Exception {
+		String artifact = parser.groupId + ":" + parser.artifactId;
+		List<String> versions = (upstream == null) ? null : upstream.upstreamVersions.get(artifact);
+
+		if (versions == null) {
+			versions = timer.time(source, parser::readVersions);
+		}
+
+		upstreamVersions.put(artifact, versions);
+		return versions;
+	}
+
 	private void loadMcData() throws IOException {
 		if (calamus == null) {
 			throw new RuntimeException("Mappings are null");
 		}
-		VersionManifest manifest = VersionManifest.forGenSorted(1);
 
 		//Sorts in the order of minecraft release dates
 		calamus = new ArrayList<>(calamus);
 		calamus.sort(Comparator.comparingInt(o -> manifest.indexOf(o.getVersion())));
-		calamus.forEach(version -> version.setStable(true));
 
 		// Remove entries that do not match a valid mc version.
 		calamus.removeIf(o -> {
@@ -102,17 +152,44 @@ public class VersionDatabaseOld {
 			}
 		}
 
-		game = minecraftVersions.stream().map(s -> new BaseVersion(s, manifest.isStable(s))).collect(Collectors.toList());
+		game = minecraftVersions.stream().map(s -> interner.intern(BaseVersion.class, s, manifest.isStable(s), BaseVersion::new)).collect(Collectors.toList());
+	}
+
+	private byte[] digest() {
+		return new ContentDigest()
+			.add(manifest)
+			.add(game)
+			.add(calamus)
+			.add(loader)
+			.add(installer)
+			.addJson(launcherMeta)
+			.finish();
+	}
+
+	/**
+	 * @return whether every response derived from the given database is the
+	 * same as for this one
+	 */
+	public boolean hasSameContent(VersionDatabaseOld other) {
+		return Arrays.equals(contentDigest, other.contentDigest);
 	}
 
 	public List<MavenBuildVersion> getLoader() {
-		return loader.stream().filter(VersionDatabaseOld::isPublicLoaderVersion).collect(Collectors.toList());
+		return loader.stream().filter(v -> isPublicLoaderVersion(v.getVersion())).collect(Collectors.toList());
 	}
 	
-	private static boolean isPublicLoaderVersion(BaseVersion version) {
+	private static boolean isPublicLoaderVersion(String version) {
 		return true;
 	}
 
+	/**
+	 * @return the launcher meta of the given loader version, or null if it is
+	 * not available. The json is shared and must not be modified.
+	 */
+	public JsonNode getLauncherMeta(MavenVersion loader) {
+		return launcherMeta.get(loader.getMaven());
+	}
+
 	public List<MavenBuildVersion> getAllLoader() {
 		return Collections.unmodifiableList(loader);
 	}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.data;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.ornithemc.meta.web.models.BaseVersion;
+import net.ornithemc.meta.web.models.VersionFactory;
+
+/**
+ * Hands out version models for a database that is being generated, reusing
+ * the models of the previous database for versions that have not changed.
+ * Models are immutable, so consecutive snapshots can share them safely.
+ */
+public class VersionInterner {
+
+	private Map<Key, BaseVersion> previous;
+	private final Map<Key, BaseVersion> versions;
+
+	public VersionInterner(VersionInterner previous) {
+		this.previous = (previous == null) ? Collections.emptyMap() : previous.versions;
+		this.versions = new ConcurrentHashMap<>();
+	}
+
+	public <T extends BaseVersion> VersionFactory<T> factory(Class<T> type, VersionFactory<T> factory) {
+		return (version, stable) -> intern(type, version, stable, factory);
+	}
+
+	public <T extends BaseVersion> T intern(Class<T> type, String version, boolean stable, VersionFactory<T> factory) {
+		return type.cast(versions.computeIfAbsent(new Key(type, version, stable), key -> {
+			BaseVersion model = previous.get(key);
+			return (model == null) ? factory.create(version, stable) : model;
+		}));
+	}
+
+	/**
+	 * Drops the reference to the previous database's models, so that they
+	 * can be collected once that database is no longer in use.
+	 */
+	public void finish() {
+		previous = Collections.emptyMap();
+	}
+
+	private static final class Key {
+
+		final Class<?> type;
+		final String version;
+		final boolean stable;
+
+		Key(Class<?> type, String version, boolean stable) {
+			this.type = type;
+			this.version = version;
+			this.stable = stable;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+
+			Key key = (Key) obj;
+			return type == key.type && stable == key.stable && version.equals(key.version);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(type, version, stable);
+		}
+	}
+}
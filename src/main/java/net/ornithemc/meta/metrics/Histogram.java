@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.metrics;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram with fixed bucket bounds. Observations only increment
+ * counters, so recording never blocks.
+ */
+public class Histogram {
+
+	/**
+	 * Bucket bounds in seconds, suitable for request latencies.
+	 */
+	public static final double[] LATENCY_BUCKETS = { 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10 };
+	/**
+	 * Bucket bounds in seconds, suitable for upstream refreshes.
+	 */
+	public static final double[] REFRESH_BUCKETS = { 0.01, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120 };
+
+	private final long[] bounds;
+	private final String[] les;
+	private final LongAdder[] buckets;
+	private final LongAdder sum;
+
+	public Histogram(double[] bounds) {
+		this.bounds = new long[bounds.length];
+		this.les = new String[bounds.length + 1];
+		this.buckets = new LongAdder[bounds.length + 1];
+		this.sum = new LongAdder();
+
+		for (int i = 0; i < bounds.length; i++) {
+			this.bounds[i] = (long) (bounds[i] * 1_000_000_000L);
+			this.les[i] = BigDecimal.valueOf(bounds[i]).stripTrailingZeros().toPlainString();
+		}
+		this.les[bounds.length] = "+Inf";
+		for (int i = 0; i < buckets.length; i++) {
+			this.buckets[i] = new LongAdder();
+		}
+	}
+
+	public void observe(long nanos) {
+		int bucket = 0;
+
+		while (bucket < bounds.length && nanos > bounds[bucket]) {
+			bucket++;
+		}
+
+		buckets[bucket].increment();
+		sum.add(nanos);
+	}
+
+	void write(StringBuilder sb, String name, String labels) {
+		String prefix = labels.isEmpty() ? "{" : ("{" + labels + ",");
+		long count = 0;
+
+		for (int i = 0; i < buckets.length; i++) {
+			count += buckets[i].sum();
+			sb.append(name).append("_bucket").append(prefix).append("le=\"").append(les[i]).append("\"} ").append(count).append('\n');
+		}
+
+		String suffix = labels.isEmpty() ? " " : ("{" + labels + "} ");
+		sb.append(name).append("_sum").append(suffix).append(sum.sum() / 1e9).append('\n');
+		sb.append(name).append("_count").append(suffix).append(count).append('\n');
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Registry of all metrics, which can be written in the Prometheus text format.
+ */
+public class Metrics {
+
+	private static final String PREFIX = "ornithe_meta_";
+
+	private static final Map<String, RouteMetrics> ROUTES = new ConcurrentHashMap<>();
+	private static final Map<String, Histogram> REFRESHES = new ConcurrentHashMap<>();
+	private static final List<Gauge> GAUGES = new CopyOnWriteArrayList<>();
+
+	/**
+	 * @return the metrics for the given route template and intermediary
+	 * generation, or 0 for routes that do not depend on a generation
+	 */
+	public static RouteMetrics route(String route, int generation) {
+		return ROUTES.computeIfAbsent(route + "#" + generation, key -> new RouteMetrics(route, generation));
+	}
+
+	public static Histogram refresh(String source) {
+		return REFRESHES.computeIfAbsent(source, key -> new Histogram(Histogram.REFRESH_BUCKETS));
+	}
+
+	public static void gauge(String name, String help, DoubleSupplier value) {
+		GAUGES.add(new Gauge(PREFIX + name, help, "gauge", value));
+	}
+
+	public static void counter(String name, String help, DoubleSupplier value) {
+		GAUGES.add(new Gauge(PREFIX + name, help, "counter", value));
+	}
+
+	public static String write() {
+		StringBuilder sb = new StringBuilder();
+
+		List<RouteMetrics> routes = new ArrayList<>(ROUTES.values());
+		routes.sort(Comparator.comparing((RouteMetrics r) -> r.route).thenComparingInt(r -> r.generation));
+
+		header(sb, PREFIX + "http_requests_total", "Requests handled per route.", "counter");
+		for (RouteMetrics route : routes) {
+			sample(sb, PREFIX + "http_requests_total", route.labels(), route.requests.sum());
+		}
+		header(sb, PREFIX + "http_request_errors_total", "Requests per route that were answered with an error status.", "counter");
+		for (RouteMetrics route : routes) {
+			sample(sb, PREFIX + "http_request_errors_total", route.labels(), route.errors.sum());
+		}
+		header(sb, PREFIX + "http_response_bytes_total", "Response body bytes written per route.", "counter");
+		for (RouteMetrics route : routes) {
+			sample(sb, PREFIX + "http_response_bytes_total", route.labels(), route.bytes.sum());
+		}
+		header(sb, PREFIX + "http_request_duration_seconds", "Time taken to handle requests per route.", "histogram");
+		for (RouteMetrics route : routes) {
+			route.latency.write(sb, PREFIX + "http_request_duration_seconds", route.labels());
+		}
+
+		header(sb, PREFIX + "refresh_duration_seconds", "Time taken to refresh the database from each upstream source.", "histogram");
+		for (Map.Entry<String, Histogram> e : new TreeMap<>(REFRESHES).entrySet()) {
+			e.getValue().write(sb, PREFIX + "refresh_duration_seconds", "source=\"" + escape(e.getKey()) + "\"");
+		}
+
+		for (Gauge gauge : GAUGES) {
+			header(sb, gauge.name, gauge.help, gauge.type);
+			sb.append(gauge.name).append(' ').append(gauge.value.getAsDouble()).append('\n');
+		}
+
+		return sb.toString();
+	}
+
+	private static void header(StringBuilder sb, String name, String help, String type) {
+		sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	private static void sample(StringBuilder sb, String name, String labels, long value) {
+		sb.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+	}
+
+	static String escape(String label) {
+		return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	private static class Gauge {
+
+		final String name;
+		final String help;
+		final String type;
+		final DoubleSupplier value;
+
+		Gauge(String name, String help, String type, DoubleSupplier value) {
+			this.name = name;
+			this.help = help;
+			this.type = type;
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measures how long each upstream source takes during a single database
+ * refresh. Sources that are fetched once per generation are added up.
+ */
+public class RefreshTimer {
+
+	private final String prefix;
+	private final long start;
+	private final Map<String, Long> durations;
+
+	public RefreshTimer(String prefix) {
+		this.prefix = prefix;
+		this.start = System.nanoTime();
+		this.durations = new LinkedHashMap<>();
+	}
+
+	public <T> T time(String source, Task<T> task) throws Exception {
+		long start = System.nanoTime();
+
+		try {
+			return task.run();
+		} finally {
+			durations.merge(source, System.nanoTime() - start, Long::sum);
+		}
+	}
+
+	/**
+	 * Records the durations of all sources, and of the refresh as a whole.
+	 */
+	public void finish() {
+		for (Map.Entry<String, Long> e : durations.entrySet()) {
+			Metrics.refresh(prefix + e.getKey()).observe(e.getValue());
+		}
+
+		Metrics.refresh(prefix + "total").observe(System.nanoTime() - start);
+	}
+
+	public interface Task<T> {
+
+		T run() throws Exception;
+
+	}
+}
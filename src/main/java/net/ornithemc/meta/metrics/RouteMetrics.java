@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics for a single route template and intermediary generation.
+ */
+public class RouteMetrics {
+
+	final String route;
+	// 0 for routes that do not depend on a generation
+	final int generation;
+
+	final LongAdder requests = new LongAdder();
+	final LongAdder errors = new LongAdder();
+	final LongAdder bytes = new LongAdder();
+	final Histogram latency = new Histogram(Histogram.LATENCY_BUCKETS);
+
+	RouteMetrics(String route, int generation) {
+		this.route = route;
+		this.generation = generation;
+	}
+
+	public void record(int status, long nanos, long responseBytes) {
+		requests.increment();
+		latency.observe(nanos);
+
+		if (status >= 400) {
+			errors.increment();
+		}
+		if (responseBytes > 0) {
+			bytes.add(responseBytes);
+		}
+	}
+
+	String labels() {
+		String labels = "route=\"" + Metrics.escape(route) + "\"";
+
+		if (generation > 0) {
+			labels += ",generation=\"" + generation + "\"";
+		}
+
+		return labels;
+	}
+}
@@ -19,43 +19,23 @@
 package net.ornithemc.meta.utils;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import net.ornithemc.meta.OrnitheMeta;
-import net.ornithemc.meta.data.VersionDatabaseOld;
-import net.ornithemc.meta.web.models.LoaderInfoBase;
-import org.apache.commons.io.FileUtils;
+import net.ornithemc.meta.web.models.LoaderType;
+import net.ornithemc.meta.web.models.MavenVersion;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
-import java.net.URL;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
 
 public class LoaderMetaV2 {
 
-	public static final File BASE_DIR = new File("metadata");
+	public static final File BASE_DIR = LoaderMetaV3.BASE_DIR;
 
-	public static JsonNode getMeta(LoaderInfoBase loaderInfo) {
-		String loaderMaven = loaderInfo.getLoader().getMaven();
-		String[] split = loaderMaven.split(":");
-		String path = String.format("%s/%s/%s", split[0].replaceAll("\\.", "/"), split[1], split[2]);
-		String filename = String.format("%s-%s.json", split[1], split[2]);
-
-		File launcherMetaFile = new File(BASE_DIR, path + "/" + filename);
-		if (!launcherMetaFile.exists()) {
-			try {
-				String url = String.format("%s%s/%s", VersionDatabaseOld.ORNITHE_MAVEN_URL, path, filename);
-				OrnitheMeta.LOGGER.info("Downloading {}", url);
-				FileUtils.copyURLToFile(new URL(url), launcherMetaFile);
-			} catch (IOException e) {
-				OrnitheMeta.LOGGER.error(e);
-				return null;
-			}
-		}
+	public static Map<String, JsonNode> load(Collection<? extends MavenVersion> loaders, Map<String, JsonNode> previous, Set<String> downloaded) {
+		return LoaderMetaV3.load(loaders, previous, downloaded);
+	}
 
-		try {
-			return OrnitheMeta.MAPPER.readTree(new FileReader(launcherMetaFile));
-		} catch (IOException e) {
-			OrnitheMeta.LOGGER.error(e);
-			return null;
-		}
+	public static Set<String> prefetch(Collection<? extends MavenVersion> loaders) throws InterruptedException {
+		return LoaderMetaV3.prefetch(LoaderType.ORNITHE, loaders);
 	}
 }
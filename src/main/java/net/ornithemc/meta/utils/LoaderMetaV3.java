@@ -20,43 +20,177 @@ package net.ornithemc.meta.utils;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import net.ornithemc.meta.OrnitheMeta;
-import net.ornithemc.meta.web.models.LoaderInfoBase;
+import net.ornithemc.meta.web.models.LoaderType;
+import net.ornithemc.meta.web.models.MavenCoordinate;
+import net.ornithemc.meta.web.models.MavenVersion;
 import org.apache.commons.io.FileUtils;
 
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class LoaderMetaV3 {
 
-	public static final File BASE_DIR = new File("metadata");
+	public static final File BASE_DIR = LocalFiles.DIR.resolve("metadata").toFile();
 
-	public static JsonNode getMeta(LoaderInfoBase loaderInfo) {
-		String loaderMavenUrl = loaderInfo.getLoaderType().getMavenUrl();
-		String loaderMaven = loaderInfo.getLoader().getMaven();
-		String[] split = loaderMaven.split(":");
-		String path = String.format("%s/%s/%s", split[0].replaceAll("\\.", "/"), split[1], split[2]);
-		String filename = String.format("%s-%s.json", split[1], split[2]);
+	private static final int PREFETCH_THREADS = 8;
+	// meta is sometimes published a little after the loader version is listed
+	private static final long MISSING_RETRY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	// when launcher meta was found not to exist upstream, so it is not requested again every refresh
+	private static final Map<String, Long> MISSING = new ConcurrentHashMap<>();
 
-		File launcherMetaFile = new File(BASE_DIR, path + "/" + filename);
-		if (!launcherMetaFile.exists()) {
-			try {
-				String url = String.format("%s%s/%s", loaderMavenUrl, path, filename);
-				OrnitheMeta.LOGGER.info("Downloading {}", url);
-				FileUtils.copyURLToFile(new URL(url), launcherMetaFile);
-			} catch (IOException e) {
-				OrnitheMeta.LOGGER.error(e);
-				return null;
+	/**
+	 * Reads the launcher meta of the given loader versions for a new database.
+	 * Meta read for the previous database is reused, unless the given set of
+	 * downloaded versions shows that its file has been replaced since.
+	 *
+	 * @return the launcher meta by loader maven coordinate, for those versions
+	 * that have it. The json is shared and must not be modified.
+	 */
+	public static Map<String, JsonNode> load(Collection<? extends MavenVersion> loaders, Map<String, JsonNode> previous, Set<String> downloaded) {
+		Map<String, JsonNode> metas = new HashMap<>();
+
+		for (MavenVersion loader : loaders) {
+			String loaderMaven = loader.getMaven();
+			JsonNode meta = (previous == null || downloaded.contains(loaderMaven)) ? null : previous.get(loaderMaven);
+
+			if (meta == null) {
+				meta = readMeta(loaderMaven);
 			}
+			if (meta != null) {
+				metas.put(loaderMaven, meta);
+			}
+		}
+
+		return metas;
+	}
+
+	private static JsonNode readMeta(String loaderMaven) {
+		File launcherMetaFile = getFile(loaderMaven);
+
+		// launcher meta is prefetched while refreshing the database,
+		// requests never wait for an upstream download
+		if (!launcherMetaFile.exists()) {
+			OrnitheMeta.LOGGER.warn("No launcher meta available for {}", loaderMaven);
+			return null;
 		}
 
 		try {
-			return OrnitheMeta.MAPPER.readTree(new FileReader(launcherMetaFile));
+			return OrnitheMeta.MAPPER.readTree(launcherMetaFile);
 		} catch (IOException e) {
 			OrnitheMeta.LOGGER.error(e);
 			return null;
 		}
 	}
 
+	/**
+	 * Downloads the launcher meta of any of the given loader versions that is
+	 * not yet present in the metadata directory. Downloads run in parallel, and
+	 * this method returns once all of them have completed.
+	 *
+	 * @return the loader versions whose launcher meta was downloaded
+	 */
+	public static Set<String> prefetch(LoaderType type, Collection<? extends MavenVersion> loaders) throws InterruptedException {
+		Set<String> missing = new LinkedHashSet<>();
+
+		for (MavenVersion loader : loaders) {
+			String loaderMaven = loader.getMaven();
+
+			if (!isKnownMissing(loaderMaven) && !getFile(loaderMaven).exists()) {
+				missing.add(loaderMaven);
+			}
+		}
+
+		if (missing.isEmpty()) {
+			return Collections.emptySet();
+		}
+
+		OrnitheMeta.LOGGER.info("Prefetching launcher meta for {} {} loader versions", missing.size(), type.getName());
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(PREFETCH_THREADS, missing.size()));
+		Set<String> downloaded = ConcurrentHashMap.newKeySet();
+
+		try {
+			List<Future<?>> downloads = new ArrayList<>();
+
+			for (String loaderMaven : missing) {
+				downloads.add(executor.submit(() -> {
+					if (download(type, loaderMaven)) {
+						downloaded.add(loaderMaven);
+					}
+				}));
+			}
+			for (Future<?> download : downloads) {
+				try {
+					download.get();
+				} catch (ExecutionException e) {
+					OrnitheMeta.LOGGER.error(e.getCause());
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		return downloaded;
+	}
+
+	private static boolean isKnownMissing(String loaderMaven) {
+		Long time = MISSING.get(loaderMaven);
+
+		if (time == null) {
+			return false;
+		}
+		if (System.currentTimeMillis() - time >= MISSING_RETRY_MILLIS) {
+			MISSING.remove(loaderMaven, time);
+			return false;
+		}
+
+		return true;
+	}
+
+	private static boolean download(LoaderType type, String loaderMaven) {
+		File launcherMetaFile = getFile(loaderMaven);
+		File tmpFile = new File(launcherMetaFile.getPath() + ".tmp");
+
+		try {
+			String url = type.getMavenUrl() + getPath(loaderMaven);
+			OrnitheMeta.LOGGER.info("Downloading {}", url);
+			FileUtils.copyURLToFile(Upstream.url(url), tmpFile);
+			// move the complete file into place so readers never see a partial download
+			Files.move(tmpFile.toPath(), launcherMetaFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return true;
+		} catch (FileNotFoundException e) {
+			OrnitheMeta.LOGGER.warn("No launcher meta published for {}", loaderMaven);
+			MISSING.put(loaderMaven, System.currentTimeMillis());
+		} catch (IOException e) {
+			OrnitheMeta.LOGGER.error(e);
+			tmpFile.delete();
+		}
+
+		return false;
+	}
+
+	private static File getFile(String loaderMaven) {
+		return new File(BASE_DIR, getPath(loaderMaven));
+	}
+
+	private static String getPath(String loaderMaven) {
+		return MavenCoordinate.parse(loaderMaven).getPath("json");
+	}
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.utils;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import net.ornithemc.meta.OrnitheMeta;
+
+/**
+ * Reads local inputs, such as the config and the unstable version lists, and
+ * keeps their parsed contents until the files change. Changes are picked up
+ * by watching the directory the files are in. If that is not possible, files
+ * are read every time they are requested.
+ */
+public class LocalFiles {
+
+	public static final String DIR_PROPERTY = "ornithe-meta.dir";
+	/**
+	 * The directory local files are resolved against. This is the working
+	 * directory, unless the {@code ornithe-meta.dir} system property is set.
+	 */
+	public static final Path DIR = Paths.get(System.getProperty(DIR_PROPERTY, "")).toAbsolutePath();
+	// editors often write a file in several steps, so wait for events to settle
+	private static final long SETTLE_MILLIS = 250;
+	private static final Object MISSING = new Object();
+
+	private static final Map<Path, Object> CACHE = new ConcurrentHashMap<>();
+	// every file that has been requested, whether it exists or not
+	private static final Set<Path> KNOWN = ConcurrentHashMap.newKeySet();
+	private static final AtomicLong INVALIDATIONS = new AtomicLong();
+
+	private static volatile boolean watching;
+
+	/**
+	 * Returns the parsed contents of the given file, or null if it does not
+	 * exist.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T read(Path path, Reader<T> reader) throws IOException {
+		Path file = DIR.resolve(path).normalize();
+		KNOWN.add(file);
+
+		if (!watching) {
+			return Files.exists(file) ? reader.read(file) : null;
+		}
+
+		Object value = CACHE.get(file);
+
+		if (value == null) {
+			long invalidations = INVALIDATIONS.get();
+			value = Files.exists(file) ? reader.read(file) : null;
+
+			if (value == null) {
+				value = MISSING;
+			}
+			// do not cache contents that may have changed while they were read
+			if (INVALIDATIONS.get() == invalidations) {
+				CACHE.put(file, value);
+			}
+		}
+
+		return (value == MISSING) ? null : (T) value;
+	}
+
+	/**
+	 * Starts watching the local files directory. The listener is called with the
+	 * requested files that have been created, modified or deleted.
+	 */
+	public static void watch(Consumer<Set<Path>> listener) {
+		try {
+			WatchService service = DIR.getFileSystem().newWatchService();
+			DIR.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+			Thread thread = new Thread(() -> run(service, listener), "local-files");
+			thread.setDaemon(true);
+			thread.start();
+
+			watching = true;
+		} catch (IOException e) {
+			OrnitheMeta.LOGGER.warn("unable to watch local files, they will be read on every refresh", e);
+		}
+	}
+
+	private static void run(WatchService service, Consumer<Set<Path>> listener) {
+		try {
+			while (true) {
+				WatchKey key = service.take();
+				Set<Path> changed = new HashSet<>();
+
+				do {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+							changed.addAll(KNOWN);
+						} else {
+							Path file = DIR.resolve((Path) event.context()).normalize();
+
+							if (KNOWN.contains(file)) {
+								changed.add(file);
+							}
+						}
+					}
+
+					if (!key.reset()) {
+						OrnitheMeta.LOGGER.warn("stopped watching local files, they will be read on every refresh");
+						watching = false;
+						CACHE.clear();
+
+						return;
+					}
+				} while ((key = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null);
+
+				if (!changed.isEmpty()) {
+					INVALIDATIONS.incrementAndGet();
+					CACHE.keySet().removeAll(changed);
+
+					listener.accept(changed);
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			watching = false;
+			CACHE.clear();
+		}
+	}
+
+	public interface Reader<T> {
+
+		T read(Path file) throws IOException;
+
+	}
+}
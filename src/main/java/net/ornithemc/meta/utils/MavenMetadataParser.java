@@ -19,6 +19,7 @@
 package net.ornithemc.meta.utils;
 
 import net.ornithemc.meta.web.models.BaseVersion;
+import net.ornithemc.meta.web.models.VersionFactory;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamConstants;
@@ -27,12 +28,12 @@ import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.function.Function;
+import java.util.Set;
+import java.util.function.Predicate;
 
 public class MavenMetadataParser {
 
@@ -52,24 +53,73 @@ public class MavenMetadataParser {
 		this.require = require;
 	}
 
-	public <T extends BaseVersion> List<T> getVersions(Function<String, T> function) throws IOException, XMLStreamException {
-		return getVersions(function, list -> {
-			if (!list.isEmpty()) list.get(0).setStable(true);
-		});
+	public <T extends BaseVersion> List<T> getVersions(VersionFactory<T> factory) throws IOException, XMLStreamException {
+		return getVersions(factory, StableVersionIdentifier.LATEST);
 	}
 
-	public <T extends BaseVersion> List<T> getVersions(Function<String, T> function, StableVersionIdentifier stableIdentifier) throws IOException, XMLStreamException {
-		List<T> versions = new ArrayList<>();
+	public <T extends BaseVersion> List<T> getVersions(VersionFactory<T> factory, StableVersionIdentifier stableIdentifier) throws IOException, XMLStreamException {
+		return getVersions(readVersions(), factory, stableIdentifier);
+	}
+
+	/**
+	 * Creates the models for versions that were read earlier.
+	 */
+	public <T extends BaseVersion> List<T> getVersions(List<String> versions, VersionFactory<T> factory, StableVersionIdentifier stableIdentifier) throws IOException {
+		Set<String> stableVersions;
+
+		// Read a file containing a new line separated list of versions that should not be marked as stable.
+		List<String> unstableVersions = LocalFiles.read(Paths.get(groupId.replace('.', '_') + "_" + artifactId + ".txt"), Files::readAllLines);
+
+		if (unstableVersions != null) {
+			stableVersions = versions.stream()
+					.filter(v -> !unstableVersions.contains(v))
+					.findFirst()
+					.map(Collections::singleton)
+					.orElse(Collections.emptySet());
+		} else {
+			// the identifier may remove versions, so give it a copy
+			versions = new ArrayList<>(versions);
+			stableVersions = stableIdentifier.process(versions);
+		}
+
+		return createVersions(factory, versions, stableVersions::contains);
+	}
+
+	/**
+	 * Reads the versions, with the stability of each version decided by the
+	 * given predicate alone. The unstable versions file is not consulted.
+	 */
+	public <T extends BaseVersion> List<T> getVersionsWithStability(VersionFactory<T> factory, Predicate<String> isStable) throws IOException, XMLStreamException {
+		return getVersionsWithStability(readVersions(), factory, isStable);
+	}
+
+	public <T extends BaseVersion> List<T> getVersionsWithStability(List<String> versions, VersionFactory<T> factory, Predicate<String> isStable) {
+		return createVersions(factory, versions, isStable);
+	}
+
+	private <T extends BaseVersion> List<T> createVersions(VersionFactory<T> factory, List<String> versions, Predicate<String> isStable) {
+		List<T> result = new ArrayList<>(versions.size());
+
+		for (String version : versions) {
+			String maven = groupId + ":" + artifactId + ":" + version;
+			result.add(factory.create(maven, isStable.test(version)));
+		}
+
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Reads the versions from the maven metadata, newest first.
+	 */
+	public List<String> readVersions() throws IOException, XMLStreamException {
+		List<String> versions = new ArrayList<>();
 
 		try {
-			URL url = new URL(mavenUrl + groupId.replace('.', '/') + "/" + artifactId + "/maven-metadata.xml");
+			URL url = Upstream.url(mavenUrl + groupId.replace('.', '/') + "/" + artifactId + "/maven-metadata.xml");
 			XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(url.openStream());
 			while (reader.hasNext()) {
 				if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("version")) {
-					String version = reader.getElementText();
-					String maven = String.format("%s:%s:%s", groupId, artifactId, version);
-
-					versions.add(function.apply(maven));
+					versions.add(reader.getElementText());
 				}
 			}
 			reader.close();
@@ -82,24 +132,23 @@ public class MavenMetadataParser {
 			versions.clear();
 		}
 
-		Path unstableVersionsPath = Paths.get(groupId.replace('.', '_') + "_" + artifactId + ".txt");
-
-		if (Files.exists(unstableVersionsPath)) {
-			// Read a file containing a new line separated list of versions that should not be marked as stable.
-			List<String> unstableVersions = Files.readAllLines(unstableVersionsPath);
-			versions.stream()
-					.filter(v -> !unstableVersions.contains(v.getVersion()))
-					.findFirst()
-					.ifPresent(v -> v.setStable(true));
-		} else {
-			stableIdentifier.process(versions);
-		}
-
 		return Collections.unmodifiableList(versions);
 	}
 	
 	public interface StableVersionIdentifier {
-		void process(List<? extends BaseVersion> versions);
+
+		/**
+		 * Marks the latest version as stable.
+		 */
+		StableVersionIdentifier LATEST = versions -> versions.isEmpty() ? Collections.emptySet() : Collections.singleton(versions.get(0));
+
+		/**
+		 * Returns the versions that should be marked as stable. The given
+		 * versions are ordered newest first, and invalid versions may be
+		 * removed from the list.
+		 */
+		Set<String> process(List<String> versions);
+
 	}
 
 }
@@ -57,7 +57,9 @@ public class MavenPomParser {
 		List<T> versions = new ArrayList<>();
 
 		try {
-			URL url = new URL(mavenUrl + groupId.replace('.', '/') + "/" + artifactId + "/" + version + "/" + artifactId + "-" + version + ".pom");
+			// old osl module versions contain a '#', which would start the fragment
+			String path = version.replace("#", "%23");
+			URL url = Upstream.url(mavenUrl + groupId.replace('.', '/') + "/" + artifactId + "/" + path + "/" + artifactId + "-" + path + ".pom");
 			XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(url.openStream());
 			while (reader.hasNext()) {
 				if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("dependency")) {
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.utils;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+/**
+ * Resolves the urls of upstream sources. Normally these are used as is, but
+ * if the {@code ornithe-meta.upstream} system property is set, every upstream
+ * request goes to that mirror instead, with {@code https://<host>/<path>}
+ * mapped to {@code <mirror>/<host>/<path>}. The mirror can be a directory of
+ * fixtures ({@code file:} url) or a local server.
+ */
+public class Upstream {
+
+	public static final String MIRROR_PROPERTY = "ornithe-meta.upstream";
+
+	public static URL url(String url) throws MalformedURLException {
+		String mirror = System.getProperty(MIRROR_PROPERTY);
+
+		if (mirror == null) {
+			return new URL(url);
+		}
+
+		int scheme = url.indexOf("://");
+		String path = (scheme < 0) ? url : url.substring(scheme + 3);
+
+		return new URL(mirror.endsWith("/") ? mirror + path : mirror + "/" + path);
+	}
+}
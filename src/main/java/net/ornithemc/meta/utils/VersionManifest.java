@@ -22,16 +22,18 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonIncludeProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.vdurmont.semver4j.Semver;
 import net.ornithemc.meta.OrnitheMeta;
 import org.apache.commons.io.IOUtils;
 
 import java.io.IOException;
-import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -39,12 +41,21 @@ import java.util.concurrent.ConcurrentHashMap;
 @JsonIgnoreProperties({"$schema", "latest"})
 public class VersionManifest {
 
+	// version jsons are immutable, so their logging configs are kept across refreshes
+	private static final Map<String, JsonNode> LOGGING_CONFIGS = new ConcurrentHashMap<>();
+	// details are keyed by their sha1, so they are kept across refreshes too
+	private static final Map<String, VersionDetails> DETAILS = new ConcurrentHashMap<>();
+
 	private final List<Version> versions;
-	private final Map<String, VersionDetails> details;
+	private final Map<String, Integer> indices;
 
 	public VersionManifest(@JsonProperty("versions") List<Version> versions) {
 		this.versions = versions;
-		this.details = new ConcurrentHashMap<>();
+		this.indices = new HashMap<>();
+
+		for (int i = 0; i < versions.size(); i++) {
+			indices.putIfAbsent(versions.get(i).id, i);
+		}
 	}
 
 	public static VersionManifest forGen(int generation) throws IOException {
@@ -54,7 +65,7 @@ public class VersionManifest {
 		} else {
 			url = String.format("https://ornithemc.net/mc-versions/gen%d/version_manifest.json", generation);
 		}
-		String json = IOUtils.toString(new URL(url), StandardCharsets.UTF_8);
+		String json = IOUtils.toString(Upstream.url(url), StandardCharsets.UTF_8);
 		return OrnitheMeta.MAPPER.readValue(json, VersionManifest.class);
 	}
 
@@ -68,16 +79,16 @@ public class VersionManifest {
 	}
 
 	private VersionDetails versionDetails(String id) {
-		return details.computeIfAbsent(id, (key) -> {
-			int index = indexOf(id);
-			Version version = versions.get(index);
+		int index = indexOf(id);
+		Version version = versions.get(index);
 
-			if (version == null) {
-				return null;
-			}
+		if (version == null) {
+			return null;
+		}
 
+		return DETAILS.computeIfAbsent(version.detailsSha1 == null ? version.details : version.detailsSha1, (key) -> {
 			try {
-				String json = IOUtils.toString(new URL(version.details), StandardCharsets.UTF_8);
+				String json = IOUtils.toString(Upstream.url(version.details), StandardCharsets.UTF_8);
 				return OrnitheMeta.MAPPER.readValue(json, VersionDetails.class);
 			} catch (IOException e) {
 				return null;
@@ -85,18 +96,26 @@ public class VersionManifest {
 		});
 	}
 
+	public List<Version> getVersions() {
+		return Collections.unmodifiableList(versions);
+	}
+
 	public boolean contains(String id) {
-		return versions.stream().anyMatch(version -> version.id.equals(id));
+		return indices.containsKey(id);
 	}
 
 	public int indexOf(String id) {
-		for (int i = 0; i < versions.size(); i++) {
-			if (versions.get(i).id.equals(id)) {
-				return i;
-			}
-		}
+		return indices.getOrDefault(id, 0);
+	}
 
-		return 0;
+	/**
+	 * @return the rank of the given version in order of release, starting
+	 * at 0 for the oldest, or -1 if it is not in this manifest. Only valid
+	 * for sorted manifests.
+	 */
+	public int rankOf(String id) {
+		Integer index = indices.get(id);
+		return (index == null) ? -1 : versions.size() - 1 - index;
 	}
 
 	public boolean isStable(String id) {
@@ -108,22 +127,41 @@ public class VersionManifest {
 		return details == null ? null : new Semver(details.normalizedVersion);
 	}
 
+	/**
+	 * @return the logging config of the given version, if it has been
+	 * prefetched and the version has one. This never downloads anything.
+	 */
 	public JsonNode getLoggingConfig(String id) {
-		int index = indexOf(id);
+		Integer index = indices.get(id);
 
-		if (index < 0) {
+		if (index == null) {
 			return null;
 		}
 
-		Version version = versions.get(index);
+		JsonNode config = LOGGING_CONFIGS.get(versions.get(index).url);
+		return (config == null || config.isMissingNode()) ? null : config;
+	}
 
-		try {
-			String json = IOUtils.toString(new URL(version.url), StandardCharsets.UTF_8);
-			ObjectNode obj = OrnitheMeta.MAPPER.readValue(json, ObjectNode.class);
+	/**
+	 * Downloads the logging config of the given version, unless it has been
+	 * downloaded before. This is done while refreshing, so that requests
+	 * never wait for it.
+	 */
+	public void prefetchLoggingConfig(String id) throws IOException {
+		Integer index = indices.get(id);
 
-			return obj.get("logging");
-		} catch (IOException e) {
-			return null;
+		if (index == null) {
+			return;
+		}
+
+		String url = versions.get(index).url;
+
+		if (!LOGGING_CONFIGS.containsKey(url)) {
+			String json = IOUtils.toString(Upstream.url(url), StandardCharsets.UTF_8);
+			JsonNode config = OrnitheMeta.MAPPER.readValue(json, ObjectNode.class).get("logging");
+
+			// versions without a logging config are remembered too
+			LOGGING_CONFIGS.put(url, (config == null) ? MissingNode.getInstance() : config);
 		}
 	}
 
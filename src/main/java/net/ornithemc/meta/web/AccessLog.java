@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.web;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.javalin.core.util.Header;
+import io.javalin.http.Context;
+
+import net.ornithemc.meta.OrnitheMeta;
+import net.ornithemc.meta.utils.LocalFiles;
+import net.ornithemc.meta.web.WebServerConfig.AccessLogConfig;
+
+/**
+ * A sampled access log, written as one json object per line, that can be
+ * replayed to reproduce the traffic mix. Entries are written by a background
+ * thread, so requests only pay for the sampling decision and, if sampled,
+ * building the entry. If the writer falls behind, entries are dropped rather
+ * than holding up requests.
+ */
+public class AccessLog {
+
+	private static final ObjectWriter WRITER = OrnitheMeta.MAPPER.writer().without(SerializationFeature.INDENT_OUTPUT);
+	// request headers that decide how a response is cached or encoded
+	private static final String[] HEADERS = { Header.IF_MODIFIED_SINCE, Header.IF_NONE_MATCH, Header.CACHE_CONTROL, Header.ACCEPT_ENCODING };
+
+	private final double sampleRate;
+	private final BlockingQueue<Entry> queue;
+	private final Writer writer;
+
+	private final LongAdder written = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+
+	public AccessLog(AccessLogConfig config) throws IOException {
+		this.sampleRate = config.sampleRate;
+		this.queue = new ArrayBlockingQueue<>(config.queueSize);
+		this.writer = Files.newBufferedWriter(LocalFiles.DIR.resolve(config.file), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+		Thread thread = new Thread(this::run, "access-log");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Starts the entry of a request, if it is sampled. The request is read
+	 * before it is handled, as it may be recycled once an async response has
+	 * been sent.
+	 *
+	 * @return the entry to finish once the request is handled, or null if
+	 * the request is not sampled
+	 */
+	public Entry start(Context ctx, String route) {
+		if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+			return null;
+		}
+
+		Entry entry = new Entry();
+		entry.time = System.currentTimeMillis();
+		entry.method = ctx.method();
+		entry.route = route;
+		entry.path = ctx.path();
+		entry.query = ctx.queryString();
+
+		for (String header : HEADERS) {
+			String value = ctx.header(header);
+
+			if (value != null) {
+				entry.headers.put(header, value);
+			}
+		}
+
+		return entry;
+	}
+
+	/**
+	 * Records a handled request with the given outcome.
+	 */
+	public void finish(Entry entry, int status, long nanos, long bytes) {
+		entry.status = status;
+		entry.micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+		entry.bytes = bytes;
+
+		if (!queue.offer(entry)) {
+			dropped.increment();
+		}
+	}
+
+	public long getWritten() {
+		return written.sum();
+	}
+
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	private void run() {
+		List<Entry> batch = new ArrayList<>();
+
+		while (true) {
+			try {
+				batch.add(queue.take());
+				queue.drainTo(batch);
+
+				for (Entry entry : batch) {
+					writer.write(WRITER.writeValueAsString(entry));
+					writer.write('\n');
+				}
+
+				writer.flush();
+				written.add(batch.size());
+			} catch (InterruptedException e) {
+				return;
+			} catch (IOException e) {
+				OrnitheMeta.LOGGER.error(e);
+				dropped.add(batch.size());
+			}
+
+			batch.clear();
+		}
+	}
+
+	/**
+	 * A single request. The path includes the path parameters, and the query
+	 * is as sent by the client.
+	 */
+	@JsonInclude(Include.NON_NULL)
+	public static class Entry {
+
+		public long time;
+		public String method;
+		public String route;
+		public String path;
+		public String query;
+		public Map<String, String> headers = new LinkedHashMap<>();
+		public int status;
+		public long micros;
+		public long bytes;
+
+	}
+}
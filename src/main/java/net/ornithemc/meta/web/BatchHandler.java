@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.web;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.Context;
+
+import net.ornithemc.meta.OrnitheMeta;
+import net.ornithemc.meta.data.MetaSnapshot;
+import net.ornithemc.meta.web.WebServer.JsonResponse;
+
+/**
+ * Answers several v3 json requests at once, so that a launcher can fetch
+ * everything its install screen needs in one round trip. The body is a json
+ * array of paths with optional query strings, as they would be requested
+ * on their own, e.g. {@code "/v3/versions/gen2/feather/1.8.9?limit=1"}.
+ *
+ * <p>All sub-queries are evaluated against the same snapshot, and share the
+ * responses of identical requests in flight. The response lists the results
+ * in order, each with its path, status and json body.
+ */
+public class BatchHandler {
+
+	private static final String ROUTE = "/v3/batch";
+
+	static void setup() {
+		WebServer.javalin.post(ROUTE, WebServer.instrument(ROUTE, BatchHandler::handle));
+	}
+
+	private static void handle(Context ctx) {
+		String[] paths;
+
+		try {
+			paths = OrnitheMeta.MAPPER.readValue(ctx.body(), String[].class);
+		} catch (IOException e) {
+			throw new BadRequestResponse("expected a json array of paths");
+		}
+
+		if (paths.length > WebServer.config.batch.maxQueries) {
+			throw new BadRequestResponse("at most " + WebServer.config.batch.maxQueries + " queries are allowed per batch");
+		}
+
+		MetaSnapshot snapshot = OrnitheMeta.snapshot();
+		String client = WebServer.clientIp(ctx);
+		@SuppressWarnings("unchecked")
+		CompletableFuture<JsonResponse>[] results = new CompletableFuture[paths.length];
+
+		for (int i = 0; i < paths.length; i++) {
+			String path = paths[i];
+
+			if (path == null || !path.startsWith("/v3/")) {
+				results[i] = CompletableFuture.completedFuture(WebServer.toJson(400, "only v3 json routes can be batched"));
+			} else {
+				results[i] = query(snapshot, path, client);
+			}
+		}
+
+		ctx.header(WebServer.SNAPSHOT_ID, Long.toString(snapshot.id));
+		ctx.contentType("application/json");
+
+		CompletableFuture<Void> all = CompletableFuture.allOf(results);
+
+		if (all.isDone()) {
+			ctx.result(write(snapshot, paths, results));
+		} else {
+			ctx.result(all.thenApply(v -> write(snapshot, paths, results)));
+		}
+	}
+
+	/**
+	 * Evaluates a sub-query. A failure becomes the result of that sub-query
+	 * only, including one of a request in flight that it joined.
+	 */
+	private static CompletableFuture<JsonResponse> query(MetaSnapshot snapshot, String path, String client) {
+		CompletableFuture<JsonResponse> result;
+
+		try {
+			result = WebServer.query(snapshot, path, client);
+		} catch (RuntimeException e) {
+			result = new CompletableFuture<>();
+			result.completeExceptionally(e);
+		}
+
+		return result.exceptionally(t -> {
+			OrnitheMeta.LOGGER.error(t, "Batch sub-query {} failed", path);
+			return WebServer.toJson(500, "An internal error occurred");
+		});
+	}
+
+	/**
+	 * Writes the results around the bodies, which are already serialized.
+	 */
+	private static InputStream write(MetaSnapshot snapshot, String[] paths, CompletableFuture<JsonResponse>[] results) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		try {
+			out.write(("{\"snapshot\":" + snapshot.id + ",\"results\":[").getBytes(StandardCharsets.UTF_8));
+
+			for (int i = 0; i < results.length; i++) {
+				JsonResponse response = results[i].join();
+
+				if (i > 0) {
+					out.write(',');
+				}
+
+				out.write(("{\"path\":" + OrnitheMeta.MAPPER.writeValueAsString(paths[i]) + ",\"status\":" + response.status + ",\"body\":").getBytes(StandardCharsets.UTF_8));
+				out.write(response.body);
+				out.write('}');
+			}
+
+			out.write("]}".getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return new ByteArrayInputStream(out.toByteArray());
+	}
+}
@@ -19,14 +19,15 @@
 package net.ornithemc.meta.web;
 
 import io.javalin.core.util.Header;
-import io.javalin.http.Context;
+import io.javalin.http.BadRequestResponse;
 import net.ornithemc.meta.OrnitheMeta;
+import net.ornithemc.meta.data.MetaSnapshot;
+import net.ornithemc.meta.data.VersionDatabaseOld;
 import net.ornithemc.meta.web.models.BaseVersion;
 import net.ornithemc.meta.web.models.LoaderInfoV2;
 import net.ornithemc.meta.web.models.MavenBuildVersion;
 import net.ornithemc.meta.web.models.MavenVersion;
 
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -40,29 +41,33 @@ public class EndpointsV2 {
 
 	public static void setup() {
 
-		WebServer.jsonGet("/v2/versions", () -> OrnitheMeta.databaseOld);
+		WebServer.jsonGet("/v2/versions", WebServer.Limit.DATABASE, snapshot -> snapshot.v2);
 
-		WebServer.jsonGet("/v2/versions/game", () -> OrnitheMeta.databaseOld.game);
-		WebServer.jsonGet("/v2/versions/game/calamus", () -> compatibleGameVersions(OrnitheMeta.databaseOld.calamus, BaseVersion::getVersion, v -> new BaseVersion(v.getVersion(), v.isStable())));
+		WebServer.jsonGet("/v2/versions/game", snapshot -> snapshot.v2.game);
+		WebServer.jsonGet("/v2/versions/game/calamus", snapshot -> compatibleGameVersions(snapshot.v2.calamus, BaseVersion::getVersion, v -> new BaseVersion(v.getVersion(), v.isStable())));
 
-		WebServer.jsonGet("/v2/versions/calamus", () -> OrnitheMeta.databaseOld.calamus);
-		WebServer.jsonGet("/v2/versions/calamus/:game_version", context -> filter(context, OrnitheMeta.databaseOld.calamus));
+		WebServer.jsonGet("/v2/versions/calamus", snapshot -> snapshot.v2.calamus);
+		WebServer.jsonGet("/v2/versions/calamus/:game_version", (snapshot, context) -> filter(context, snapshot.v2.calamus));
 
-		WebServer.jsonGet("/v2/versions/loader", context -> withLimitSkip(context, OrnitheMeta.databaseOld.getLoader()));
-		WebServer.jsonGet("/v2/versions/loader/:game_version", context -> withLimitSkip(context, EndpointsV2.getLoaderInfoAll(context)));
-		WebServer.jsonGet("/v2/versions/loader/:game_version/:loader_version", EndpointsV2::getLoaderInfo);
+		WebServer.jsonGet("/v2/versions/loader", (snapshot, context) -> withLimitSkip(context, snapshot.v2.getLoader()));
+		WebServer.jsonGet("/v2/versions/loader/:game_version", (snapshot, context) -> withLimitSkip(context, getLoaderInfoAll(snapshot.v2, context)));
+		WebServer.jsonGet("/v2/versions/loader/:game_version/:loader_version", (snapshot, context) -> getLoaderInfo(snapshot.v2, context));
 
-		WebServer.jsonGet("/v2/versions/installer", context -> withLimitSkip(context, OrnitheMeta.databaseOld.installer));
+		WebServer.jsonGet("/v2/versions/installer", (snapshot, context) -> withLimitSkip(context, snapshot.v2.installer));
 
 		ProfileHandlerV2.setup();
 	}
 
-	private static <T> List<T> withLimitSkip(Context context, List<T> list) {
+	private static <T> List<T> withLimitSkip(Query context, List<T> list) {
 		if(list == null){
 			return Collections.emptyList();
 		}
-		int limit = context.queryParam("limit", Integer.class, "0").check(i -> i >= 0).get();
-		int skip = context.queryParam("skip", Integer.class, "0").check(i -> i >= 0).get();
+		int limit = context.queryParamAsInt("limit", 0);
+		int skip = context.queryParamAsInt("skip", 0);
+
+		if (limit < 0 || skip < 0) {
+			throw new BadRequestResponse("limit and skip must not be negative");
+		}
 
 		Stream<T> listStream = list.stream().skip(skip);
 
@@ -73,7 +78,7 @@ public class EndpointsV2 {
 		return listStream.collect(Collectors.toList());
 	}
 
-	private static <T extends Predicate<String>> List<T> filter(Context context, List<T> versionList) {
+	private static <T extends Predicate<String>> List<T> filter(Query context, List<T> versionList) {
 		if (!context.pathParamMap().containsKey("game_version")) {
 			return Collections.emptyList();
 		}
@@ -81,7 +86,7 @@ public class EndpointsV2 {
 
 	}
 
-	private static Object getLoaderInfo(Context context) {
+	private static Object getLoaderInfo(VersionDatabaseOld database, Query context) {
 		if (!context.pathParamMap().containsKey("game_version")) {
 			return null;
 		}
@@ -92,11 +97,11 @@ public class EndpointsV2 {
 		String gameVersion = context.pathParam("game_version");
 		String loaderVersion = context.pathParam("loader_version");
 
-		MavenBuildVersion loader = OrnitheMeta.databaseOld.getAllLoader().stream()
+		MavenBuildVersion loader = database.getAllLoader().stream()
 			.filter(mavenBuildVersion -> loaderVersion.equals(mavenBuildVersion.getVersion()))
 			.findFirst().orElse(null);
 
-		MavenVersion mappings = OrnitheMeta.databaseOld.calamus.stream()
+		MavenVersion mappings = database.calamus.stream()
 			.filter(t -> t.test(gameVersion))
 			.findFirst().orElse(null);
 
@@ -108,16 +113,19 @@ public class EndpointsV2 {
 			context.status(400);
 			return "no mappings version found for " + gameVersion;
 		}
-		return new LoaderInfoV2(loader, mappings).populateMeta();
+		return new LoaderInfoV2(loader, mappings).populateMeta(database.getLauncherMeta(loader));
 	}
 
-	private static List<?> getLoaderInfoAll(Context context) {
+	private static List<?> getLoaderInfoAll(VersionDatabaseOld database, Query context) {
 		if (!context.pathParamMap().containsKey("game_version")) {
 			return null;
 		}
-		String gameVersion = context.pathParam("game_version");
 
-		MavenVersion mappings = OrnitheMeta.databaseOld.calamus.stream()
+		return getLoaderInfoAll(database, context.pathParam("game_version"));
+	}
+
+	static List<?> getLoaderInfoAll(VersionDatabaseOld database, String gameVersion) {
+		MavenVersion mappings = database.calamus.stream()
 			.filter(t -> t.test(gameVersion))
 			.findFirst().orElse(null);
 
@@ -127,8 +135,8 @@ public class EndpointsV2 {
 
 		List<LoaderInfoV2> infoList = new ArrayList<>();
 
-		for(MavenBuildVersion loader : OrnitheMeta.databaseOld.getLoader()){
-			infoList.add(new LoaderInfoV2(loader, mappings).populateMeta());
+		for(MavenBuildVersion loader : database.getLoader()){
+			infoList.add(new LoaderInfoV2(loader, mappings).populateMeta(database.getLauncherMeta(loader)));
 		}
 		return infoList;
 	}
@@ -146,16 +154,26 @@ public class EndpointsV2 {
 		return versions;
 	}
 
-	public static void fileDownload(String path, String ext, Function<LoaderInfoV2, String> fileNameFunction, Function<LoaderInfoV2, CompletableFuture<InputStream>> streamSupplier) {
-		WebServer.javalin.get("/v2/versions/loader/:game_version/:loader_version/" + path + "/" + ext, ctx -> {
-			Object obj = getLoaderInfo(ctx);
+	public static void fileDownload(String path, String ext, Function<LoaderInfoV2, String> fileNameFunction, ProfileFunction streamSupplier) {
+		String route = "/v2/versions/loader/:game_version/:loader_version/" + path + "/" + ext;
+
+		WebServer.javalin.get(route, WebServer.instrument(route, WebServer.Limit.PROFILES, ctx -> {
+			MetaSnapshot snapshot = OrnitheMeta.snapshot();
+			VersionDatabaseOld database = snapshot.v2;
+			Query query = Query.of(ctx);
+			Object obj = getLoaderInfo(database, query);
+			ctx.status(query.status());
 
 			if (obj instanceof String) {
 				ctx.result((String) obj);
 			} else if (obj instanceof LoaderInfoV2) {
 				LoaderInfoV2 versionInfo = (LoaderInfoV2) obj;
 
-				CompletableFuture<InputStream> streamFuture = streamSupplier.apply(versionInfo);
+				if (versionInfo.getLauncherMeta() == null) {
+					ctx.status(404);
+					ctx.result("no launcher meta found for " + versionInfo.getLoader().getMaven());
+					return;
+				}
 
 				if (ext.equals("zip")) {
 					//Set the filename to download
@@ -166,13 +184,27 @@ public class EndpointsV2 {
 					ctx.contentType("application/json");
 				}
 
-				//Cache for a day
-				ctx.header(Header.CACHE_CONTROL, "public, max-age=86400");
+				WebServer.cacheHeaders(ctx, snapshot, WebServer.config.cache.profileStaleWhileRevalidateSeconds);
 
-				ctx.result(streamFuture);
+				if (WebServer.notModified(ctx, snapshot)) {
+					return;
+				}
+
+				CompletableFuture<byte[]> streamFuture = WebServer.PROFILE_REQUESTS.get(WebServer.requestKey(snapshot, ctx), () -> streamSupplier.apply(database, snapshot.publishTime, versionInfo));
+
+				WebServer.writeBytes(ctx, streamFuture);
 			} else {
 				ctx.result("An internal error occurred");
 			}
-		});
+		}));
+	}
+
+	public interface ProfileFunction {
+
+		/**
+		 * @param time the publish time of the snapshot, which profiles use as their time
+		 */
+		CompletableFuture<byte[]> apply(VersionDatabaseOld database, long time, LoaderInfoV2 info);
+
 	}
 }
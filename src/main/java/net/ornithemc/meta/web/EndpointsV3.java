@@ -19,13 +19,20 @@
 package net.ornithemc.meta.web;
 
 import io.javalin.core.util.Header;
+import io.javalin.http.BadRequestResponse;
 import io.javalin.http.Context;
-import io.javalin.http.Handler;
+import io.javalin.http.GoneResponse;
+import io.javalin.http.NotFoundResponse;
+import io.javalin.http.ServiceUnavailableResponse;
 import net.ornithemc.meta.OrnitheMeta;
+import net.ornithemc.meta.data.MetaSnapshot;
+import net.ornithemc.meta.data.SnapshotChanges;
 import net.ornithemc.meta.data.VersionDatabase;
 import net.ornithemc.meta.utils.VersionManifest;
 import net.ornithemc.meta.web.LibraryUpgradesV3.LibraryUpgrade;
+import net.ornithemc.meta.web.WebServer.JsonResponse;
 import net.ornithemc.meta.web.models.BaseVersion;
+import net.ornithemc.meta.web.models.Changes;
 import net.ornithemc.meta.web.models.Library;
 import net.ornithemc.meta.web.models.LoaderInfoV3;
 import net.ornithemc.meta.web.models.LoaderType;
@@ -33,7 +40,6 @@ import net.ornithemc.meta.web.models.MavenBuildGameVersion;
 import net.ornithemc.meta.web.models.MavenBuildVersion;
 import net.ornithemc.meta.web.models.MavenVersion;
 
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -43,7 +49,6 @@ import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
-import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -51,98 +56,200 @@ import com.vdurmont.semver4j.Semver;
 
 public class EndpointsV3 {
 
+	private static final int MAX_CACHED_OSL_CLOSURES = 4096;
+
+	// serialized on first request, for the database they were computed from
+	private static final ScopedCache<String, JsonResponse> OSL_CLOSURES = new ScopedCache<>(MAX_CACHED_OSL_CLOSURES, () -> OrnitheMeta.snapshot().v3);
+
+	// registered after all other routes, so that the generation parameter never shadows them
+	private static final List<Runnable> GENERATION_ROUTES = new ArrayList<>();
+
 	public static void setup() {
 
-		jsonGet("", () -> OrnitheMeta.database);
+		WebServer.jsonGet("/v3/versions", WebServer.Limit.DATABASE, snapshot -> snapshot.v3);
+
+		jsonGet("/intermediary_generations", database -> database.intermediaryGenerations);
+
+		jsonGetS("/game", generation -> database -> database.getGame(generation));
+		jsonGetS("/game/intermediary", generation -> database -> compatibleGameVersions(database.getIntermediary(generation), BaseVersion::getVersion, v -> new BaseVersion(v.getVersion(), v.isStable())));
+		jsonGetS("/game/feather", generation -> database -> compatibleGameVersions(database.getFeather(generation), MavenBuildGameVersion::getGameVersion, v -> new BaseVersion(v.getGameVersion(), v.isStable())));
+		jsonGet("/game/nests", database -> compatibleGameVersions(database.nests, MavenBuildGameVersion::getGameVersion, v -> new BaseVersion(v.getGameVersion(), v.isStable())));
+
+		jsonGetF("/intermediary", generation -> (database, context) -> inGameVersionRange(database, context, generation, "intermediary", database.getIntermediary(generation)));
+		jsonGetF("/intermediary/:game_version", generation -> (database, context) -> filter(context, database.getIntermediary(generation)));
 
-		jsonGet("/intermediary_generations", () -> OrnitheMeta.database.intermediaryGenerations);
+		jsonGetF("/feather", generation -> (database, context) -> withLimitSkip(context, inGameVersionRange(database, context, generation, "feather", database.getFeather(generation))));
+		jsonGetF("/feather/:game_version", generation -> (database, context) -> withLimitSkip(context, filter(context, database.getFeather(generation))));
 
-		jsonGetS("/game", generation -> () -> OrnitheMeta.database.getGame(generation));
-		jsonGetS("/game/intermediary", generation -> () -> compatibleGameVersions(OrnitheMeta.database.getIntermediary(generation), BaseVersion::getVersion, v -> new BaseVersion(v.getVersion(), v.isStable())));
-		jsonGetS("/game/feather", generation -> () -> compatibleGameVersions(OrnitheMeta.database.getFeather(generation), MavenBuildGameVersion::getGameVersion, v -> new BaseVersion(v.getGameVersion(), v.isStable())));
-		jsonGet("/game/nests", () -> compatibleGameVersions(OrnitheMeta.database.nests, MavenBuildGameVersion::getGameVersion, v -> new BaseVersion(v.getGameVersion(), v.isStable())));
+		jsonGet("/raven", (database, context) -> withLimitSkip(context, inGameVersionRange(database, context, database.intermediaryGenerations.stableIntermediaryGeneration, "raven", database.raven)));
+		jsonGet("/raven/:game_version", (database, context) -> withLimitSkip(context, filter(context, database.raven)));
 
-		jsonGetS("/intermediary", generation -> () -> OrnitheMeta.database.getIntermediary(generation));
-		jsonGetF("/intermediary/:game_version", generation -> context -> filter(context, OrnitheMeta.database.getIntermediary(generation)));
+		jsonGet("/sparrow", (database, context) -> withLimitSkip(context, inGameVersionRange(database, context, database.intermediaryGenerations.stableIntermediaryGeneration, "sparrow", database.sparrow)));
+		jsonGet("/sparrow/:game_version", (database, context) -> withLimitSkip(context, filter(context, database.sparrow)));
 
-		jsonGetF("/feather", generation -> context -> withLimitSkip(context, OrnitheMeta.database.getFeather(generation)));
-		jsonGetF("/feather/:game_version", generation -> context -> withLimitSkip(context, filter(context, OrnitheMeta.database.getFeather(generation))));
+		jsonGet("/nests", (database, context) -> withLimitSkip(context, inGameVersionRange(database, context, database.intermediaryGenerations.stableIntermediaryGeneration, "nests", database.nests)));
+		jsonGet("/nests/:game_version", (database, context) -> withLimitSkip(context, filter(context, database.nests)));
 
-		jsonGet("/raven", context -> withLimitSkip(context, OrnitheMeta.database.raven));
-		jsonGet("/raven/:game_version", context -> withLimitSkip(context, filter(context, OrnitheMeta.database.raven)));
+		jsonGetF("/libraries/", generation -> (database, context) -> withLimitSkip(context, getLibraryUpgrades(database, generation)));
+		jsonGetF("/libraries/:game_version", generation -> (database, context) -> withLimitSkip(context, getLibraries(database, context, generation)));
 
-		jsonGet("/sparrow", context -> withLimitSkip(context, OrnitheMeta.database.sparrow));
-		jsonGet("/sparrow/:game_version", context -> withLimitSkip(context, filter(context, OrnitheMeta.database.sparrow)));
+		jsonGetF("/fabric-loader", generation -> (database, context) -> withLimitSkip(context, database.getLoader(generation, LoaderType.FABRIC)));
+		jsonGetF("/fabric-loader/:game_version", generation -> (database, context) -> withLimitSkip(context, getLoaderInfoAll(database, context, generation, LoaderType.FABRIC)));
+		jsonGetF("/fabric-loader/:game_version/:loader_version", generation -> (database, context) -> getLoaderInfo(database, context, generation, LoaderType.FABRIC));
 
-		jsonGet("/nests", context -> withLimitSkip(context, OrnitheMeta.database.nests));
-		jsonGet("/nests/:game_version", context -> withLimitSkip(context, filter(context, OrnitheMeta.database.nests)));
+		jsonGetF("/quilt-loader", generation -> (database, context) -> withLimitSkip(context, database.getLoader(generation, LoaderType.QUILT)));
+		jsonGetF("/quilt-loader/:game_version", generation -> (database, context) -> withLimitSkip(context, getLoaderInfoAll(database, context, generation, LoaderType.QUILT)));
+		jsonGetF("/quilt-loader/:game_version/:loader_version", generation -> (database, context) -> getLoaderInfo(database, context, generation, LoaderType.QUILT));
 
-		jsonGetF("/libraries/", generation -> context -> withLimitSkip(context, getLibraryUpgrades(context, generation)));
-		jsonGetF("/libraries/:game_version", generation -> context -> withLimitSkip(context, getLibraries(context, generation)));
+		jsonGet("/installer", (database, context) -> withLimitSkip(context, database.installer));
 
-		jsonGetF("/fabric-loader", generation -> context -> withLimitSkip(context, OrnitheMeta.database.getLoader(generation, LoaderType.FABRIC)));
-		jsonGetF("/fabric-loader/:game_version", generation -> context -> withLimitSkip(context, getLoaderInfoAll(context, generation, LoaderType.FABRIC)));
-		jsonGetF("/fabric-loader/:game_version/:loader_version", generation -> context -> getLoaderInfo(context, generation, LoaderType.FABRIC));
+		jsonGetF("/osl", generation -> (database, context) -> withLimitSkip(context, database.getOsl(generation)));
+		jsonGetF("/osl/:version", generation -> (database, context) -> withLimitSkip(context, getOslDependencyInfo(database, context, generation)));
+		jsonGetF("/osl/:module/:game_version", generation -> (database, context) -> withLimitSkip(context, getOslModuleInfo(database, context, generation)));
+		jsonGetF("/osl/:module/:game_version/:base_version", generation -> (database, context) -> withLimitSkip(context, getOslModuleInfo(database, context, generation)));
 
-		jsonGetF("/quilt-loader", generation -> context -> withLimitSkip(context, OrnitheMeta.database.getLoader(generation, LoaderType.QUILT)));
-		jsonGetF("/quilt-loader/:game_version", generation -> context -> withLimitSkip(context, getLoaderInfoAll(context, generation, LoaderType.QUILT)));
-		jsonGetF("/quilt-loader/:game_version/:loader_version", generation -> context -> getLoaderInfo(context, generation, LoaderType.QUILT));
+		jsonGetF("/osl-closure/:version", generation -> (database, context) -> getOslClosure(database, context, generation));
+		jsonGetF("/osl-closure/:module/:module_version", generation -> (database, context) -> getOslClosure(database, context, generation));
 
-		jsonGet("/installer", context -> withLimitSkip(context, OrnitheMeta.database.installer));
+		jsonGetF("/resolve/:game_version", generation -> (database, context) -> InstallResolver.get(database, generation, LoaderType.FABRIC, context.pathParam("game_version")));
+		jsonGetF("/resolve/:game_version/:loader_type", generation -> (database, context) -> InstallResolver.get(database, generation, getLoaderType(context), context.pathParam("game_version")));
 
-		jsonGetF("/osl", generation -> context -> withLimitSkip(context, OrnitheMeta.database.getOsl(generation)));
-		jsonGetF("/osl/:version", generation -> context -> withLimitSkip(context, getOslDependencyInfo(context, generation)));
-		jsonGetF("/osl/:module/:game_version", generation -> context -> withLimitSkip(context, getOslModuleInfo(context, generation)));
-		jsonGetF("/osl/:module/:game_version/:base_version", generation -> context -> withLimitSkip(context, getOslModuleInfo(context, generation)));
+		WebServer.jsonGet("/v3/lookup", (snapshot, context) -> lookup(snapshot.v3, context));
+		WebServer.jsonGet("/v3/changes", EndpointsV3::getChanges);
+		BatchHandler.setup();
 
 		ProfileHandlerV3.setup();
+
+		GENERATION_ROUTES.forEach(Runnable::run);
+		GENERATION_ROUTES.clear();
+	}
+
+	private static <T> void jsonGet(String path, Function<VersionDatabase, T> function) {
+		WebServer.jsonGet("/v3/versions" + path, snapshot -> function.apply(snapshot.v3));
 	}
 
-	private static <T> void jsonGet(String path, Supplier<T> supplier) {
-		WebServer.jsonGet("/v3/versions" + path, supplier);
+	private static <T> void jsonGet(String path, BiFunction<VersionDatabase, Query, T> function) {
+		WebServer.jsonGet("/v3/versions" + path, (snapshot, context) -> function.apply(snapshot.v3, context));
 	}
 
-	private static <T> void jsonGet(String path, Function<Context, T> function) {
-		WebServer.jsonGet("/v3/versions" + path, function);
+	private static <T> void jsonGetS(String path, Function<Integer, Function<VersionDatabase, T>> function) {
+		jsonGetF(path, generation -> {
+			Function<VersionDatabase, T> f = function.apply(generation);
+			return (database, context) -> f.apply(database);
+		});
 	}
 
-	private static <T> void jsonGetS(String path, Function<Integer, Supplier<T>> supplier) {
-		for (int generation = 1; generation <= VersionDatabase.config.latestIntermediaryGeneration; generation++) {
-			Handler handler = WebServer.jsonGet("/v3/versions/gen" + generation + path, supplier.apply(generation));
+	private static <T> void jsonGetF(String path, Function<Integer, BiFunction<VersionDatabase, Query, T>> function) {
+		WebServer.jsonGet("/v3/versions" + path, EndpointsV3::stableGeneration, (snapshot, context) -> function.apply(snapshot.config.stableIntermediaryGeneration).apply(snapshot.v3, context));
+		GENERATION_ROUTES.add(() -> WebServer.jsonGet("/v3/versions/:generation" + path, EndpointsV3::requestedGeneration, (snapshot, context) -> function.apply(getGeneration(snapshot, context)).apply(snapshot.v3, context)));
+	}
 
-			if (generation == VersionDatabase.config.stableIntermediaryGeneration) {
-				WebServer.javalin.get("/v3/versions" + path, handler);
+	private static void jsonGetH(String path, WebServer.Limit limit, GenerationHandler handler) {
+		WebServer.javalin.get("/v3/versions" + path, WebServer.instrument("/v3/versions" + path, limit, EndpointsV3::stableGeneration, ctx -> {
+			MetaSnapshot snapshot = OrnitheMeta.snapshot();
+			handler.handle(snapshot, snapshot.config.stableIntermediaryGeneration, ctx);
+		}));
+		GENERATION_ROUTES.add(() -> WebServer.javalin.get("/v3/versions/:generation" + path, WebServer.instrument("/v3/versions/:generation" + path, limit, EndpointsV3::requestedGeneration, ctx -> {
+			MetaSnapshot snapshot = OrnitheMeta.snapshot();
+			handler.handle(snapshot, getGeneration(snapshot, Query.of(ctx)), ctx);
+		})));
+	}
+
+	/**
+	 * Resolves the {@code gen<n>} path parameter against the generations
+	 * configured in the given snapshot.
+	 */
+	private static int getGeneration(MetaSnapshot snapshot, Query context) {
+		String name = context.pathParam("generation");
+		int generation = findGeneration(snapshot, name);
+
+		if (generation == 0) {
+			throw new NotFoundResponse("no intermediary generation " + name);
+		}
+
+		return generation;
+	}
+
+	/**
+	 * @return the generation of the given {@code gen<n>} name, or 0 if the
+	 * given snapshot has no such generation
+	 */
+	private static int findGeneration(MetaSnapshot snapshot, String name) {
+		if (name != null && name.startsWith("gen")) {
+			try {
+				int generation = Integer.parseInt(name.substring(3));
+
+				if (generation >= 1 && generation <= snapshot.config.latestIntermediaryGeneration) {
+					return generation;
+				}
+			} catch (NumberFormatException e) {
 			}
 		}
+
+		return 0;
 	}
 
-	private static <T> void jsonGetF(String path, Function<Integer, Function<Context, T>> function) {
-		for (int generation = 1; generation <= VersionDatabase.config.latestIntermediaryGeneration; generation++) {
-			Handler handler = WebServer.jsonGet("/v3/versions/gen" + generation + path, function.apply(generation));
+	// the generations that requests are recorded under in the metrics
 
-			if (generation == VersionDatabase.config.stableIntermediaryGeneration) {
-				WebServer.javalin.get("/v3/versions" + path, handler);
+	private static int stableGeneration(Context ctx) {
+		return OrnitheMeta.snapshot().config.stableIntermediaryGeneration;
+	}
+
+	private static int requestedGeneration(Context ctx) {
+		return findGeneration(OrnitheMeta.snapshot(), ctx.pathParam("generation"));
+	}
+
+	private static LoaderType getLoaderType(Query context) {
+		String name = context.pathParam("loader_type");
+
+		for (LoaderType type : InstallResolver.LOADER_TYPES) {
+			if (type.getName().equals(name)) {
+				return type;
 			}
 		}
+
+		throw new NotFoundResponse("no loader type " + name);
 	}
 
-	private static <T> void jsonGetH(String path, Function<Integer, Handler> function) {
-		for (int generation = 1; generation <= VersionDatabase.config.latestIntermediaryGeneration; generation++) {
-			Handler handler = function.apply(generation);
-			WebServer.javalin.get("/v3/versions/gen" + generation + path, handler);
+	/**
+	 * Lists where the coordinate given by the {@code maven} query parameter
+	 * appears in the database.
+	 */
+	private static Object lookup(VersionDatabase database, Query context) {
+		String maven = context.queryParam("maven");
 
-			if (generation == VersionDatabase.config.stableIntermediaryGeneration) {
-				WebServer.javalin.get("/v3/versions" + path, handler);
-			}
+		if (maven == null || maven.isEmpty()) {
+			throw new BadRequestResponse("the maven query parameter is required");
 		}
+
+		return LookupIndex.get(database, maven);
 	}
 
-	private static <T> List<T> withLimitSkip(Context context, List<T> list) {
+	/**
+	 * Lists the changes since the snapshot given by the {@code since} query
+	 * parameter, as read from the snapshot id header of an earlier response.
+	 */
+	private static Changes getChanges(MetaSnapshot snapshot, Query context) {
+		long since = context.queryParamAsLong("since");
+		List<SnapshotChanges> changes = snapshot.getChangesSince(since);
+
+		if (changes == null) {
+			throw new GoneResponse("changes since snapshot " + since + " are no longer available, fetch /v3/versions instead");
+		}
+
+		return new Changes(snapshot.id, changes);
+	}
+
+	private static <T> List<T> withLimitSkip(Query context, List<T> list) {
 		if(list == null){
 			return Collections.emptyList();
 		}
-		int limit = context.queryParam("limit", Integer.class, "0").check(i -> i >= 0).get();
-		int skip = context.queryParam("skip", Integer.class, "0").check(i -> i >= 0).get();
+		int limit = context.queryParamAsInt("limit", 0);
+		int skip = context.queryParamAsInt("skip", 0);
+
+		if (limit < 0 || skip < 0) {
+			throw new BadRequestResponse("limit and skip must not be negative");
+		}
 
 		Stream<T> listStream = list.stream().skip(skip);
 
@@ -153,39 +260,76 @@ public class EndpointsV3 {
 		return listStream.collect(Collectors.toList());
 	}
 
-	private static <T extends Predicate<String>> List<T> filter(Context context, List<T> versionList) {
+	/**
+	 * Narrows the versions of an artifact down to those for the game versions
+	 * from and to the {@code from} and {@code to} query parameters, inclusive,
+	 * in order of release in the given generation, if either is given.
+	 */
+	private static List<?> inGameVersionRange(VersionDatabase database, Query context, int generation, String artifact, List<?> versions) {
+		String from = context.queryParam("from");
+		String to = context.queryParam("to");
+
+		if (from == null && to == null) {
+			return versions;
+		}
+
+		VersionManifest manifest = database.getManifest(generation);
+		int fromRank = (from == null) ? 0 : rankOf(manifest, from);
+		int toRank = (to == null) ? Integer.MAX_VALUE : rankOf(manifest, to);
+
+		return database.getGameVersionRange(generation, artifact, fromRank, toRank);
+	}
+
+	private static int rankOf(VersionManifest manifest, String gameVersion) {
+		int rank = manifest.rankOf(BaseVersion.stripSide(gameVersion));
+
+		if (rank < 0) {
+			throw new BadRequestResponse("unknown game version " + gameVersion);
+		}
+
+		return rank;
+	}
+
+	private static <T extends Predicate<String>> List<T> filter(Query context, List<T> versionList) {
 		if (!context.pathParamMap().containsKey("game_version")) {
 			return Collections.emptyList();
 		}
-		return versionList.stream().filter(t -> t.test(context.pathParam("game_version"))).collect(Collectors.toList());
+		return filter(versionList, context.pathParam("game_version"));
 	}
 
-	private static List<LibraryUpgrade> getLibraryUpgrades(Context context, int generation) {
-		return OrnitheMeta.database.libraryUpgrades.stream()
+	static <T extends Predicate<String>> List<T> filter(List<T> versionList, String gameVersion) {
+		return versionList.stream().filter(t -> t.test(gameVersion)).collect(Collectors.toList());
+	}
+
+	static List<LibraryUpgrade> getLibraryUpgrades(VersionDatabase database, int generation) {
+		return database.libraryUpgrades.stream()
 			.map(lib -> lib.forIntermediaryGeneration(generation))
 			.filter(Objects::nonNull)
 			.collect(Collectors.toList());
 	}
 
-	private static List<Library> getLibraries(Context context, int generation) {
+	private static List<Library> getLibraries(VersionDatabase database, Query context, int generation) {
 		if (!context.pathParamMap().containsKey("game_version")) {
 			return null;
 		}
 
-		String gameVersion = context.pathParam("game_version");
-		Semver version = OrnitheMeta.database.getManifest(generation).normalize(gameVersion);
+		return getLibraries(database, generation, context.pathParam("game_version"));
+	}
+
+	static List<Library> getLibraries(VersionDatabase database, int generation, String gameVersion) {
+		Semver version = database.getManifest(generation).normalize(gameVersion);
 
 		if (version == null) {
 			return null;
 		}
 
-		return OrnitheMeta.database.libraryUpgrades.stream()
-			.filter(l -> l.test(generation, gameVersion))
+		return database.libraryUpgrades.stream()
+			.filter(l -> l.test(database, generation, gameVersion))
 			.map(LibraryUpgrade::asLibrary)
 			.collect(Collectors.toList());
 	}
 
-	private static Object getLoaderInfo(Context context, int generation, LoaderType type) {
+	private static Object getLoaderInfo(VersionDatabase database, Query context, int generation, LoaderType type) {
 		if (!context.pathParamMap().containsKey("game_version")) {
 			return null;
 		}
@@ -196,13 +340,8 @@ public class EndpointsV3 {
 		String gameVersion = context.pathParam("game_version");
 		String loaderVersion = context.pathParam("loader_version");
 
-		MavenBuildVersion loader = OrnitheMeta.database.getAllLoader(generation, type).stream()
-			.filter(mavenBuildVersion -> loaderVersion.equals(mavenBuildVersion.getVersion()))
-			.findFirst().orElse(null);
-
-		MavenVersion mappings = OrnitheMeta.database.getIntermediary(generation).stream()
-			.filter(t -> t.test(gameVersion))
-			.findFirst().orElse(null);
+		MavenBuildVersion loader = database.findLoader(generation, type, loaderVersion);
+		MavenVersion mappings = database.findIntermediary(generation, gameVersion);
 
 		if (loader == null) {
 			context.status(400);
@@ -212,18 +351,19 @@ public class EndpointsV3 {
 			context.status(400);
 			return "no mappings version found for " + gameVersion;
 		}
-		return new LoaderInfoV3(type, loader, mappings).populateMeta();
+		return new LoaderInfoV3(type, loader, mappings).populateMeta(database.getLauncherMeta(loader));
 	}
 
-	private static List<?> getLoaderInfoAll(Context context, int generation, LoaderType type) {
+	private static List<?> getLoaderInfoAll(VersionDatabase database, Query context, int generation, LoaderType type) {
 		if (!context.pathParamMap().containsKey("game_version")) {
 			return null;
 		}
-		String gameVersion = context.pathParam("game_version");
 
-		MavenVersion mappings = OrnitheMeta.database.getIntermediary(generation).stream()
-			.filter(t -> t.test(gameVersion))
-			.findFirst().orElse(null);
+		return getLoaderInfoAll(database, generation, type, context.pathParam("game_version"));
+	}
+
+	static List<?> getLoaderInfoAll(VersionDatabase database, int generation, LoaderType type, String gameVersion) {
+		MavenVersion mappings = database.findIntermediary(generation, gameVersion);
 
 		if(mappings == null){
 			return Collections.emptyList();
@@ -231,13 +371,13 @@ public class EndpointsV3 {
 
 		List<LoaderInfoV3> infoList = new ArrayList<>();
 
-		for(MavenBuildVersion loader : OrnitheMeta.database.getLoader(generation, type)){
-			infoList.add(new LoaderInfoV3(type, loader, mappings).populateMeta());
+		for(MavenBuildVersion loader : database.getLoader(generation, type)){
+			infoList.add(new LoaderInfoV3(type, loader, mappings).populateMeta(database.getLauncherMeta(loader)));
 		}
 		return infoList;
 	}
 
-	private static <T extends BaseVersion> List<BaseVersion> compatibleGameVersions(List<T> list, Function<T, String> gameVersionSupplier, Function<T, BaseVersion> baseVersionSupplier){
+	static <T extends BaseVersion> List<BaseVersion> compatibleGameVersions(List<T> list, Function<T, String> gameVersionSupplier, Function<T, BaseVersion> baseVersionSupplier){
 		List<BaseVersion> versions = new ArrayList<>();
 		Predicate<String> contains = s -> versions.stream().anyMatch(baseVersion -> baseVersion.getVersion().equals(s));
 
@@ -250,18 +390,50 @@ public class EndpointsV3 {
 		return versions;
 	}
 
-	private static List<?> getOslDependencyInfo(Context context, int generation) {
+	private static List<?> getOslDependencyInfo(VersionDatabase database, Query context, int generation) {
 		if (!context.pathParamMap().containsKey("version")) {
 			return null;
 		}
 
 		String version = context.pathParam("version");
-		List<MavenVersion> versions = OrnitheMeta.database.getOslDependencies(generation, version);
+		List<MavenVersion> versions = database.getOslDependencies(generation, version);
 
 		return versions;
 	}
 
-	private static List<?> getOslModuleInfo(Context context, int generation) {
+	/**
+	 * Lists all modules that an osl version, or a version of a module, depends
+	 * on, directly or transitively, so that they can be fetched at once.
+	 */
+	private static JsonResponse getOslClosure(VersionDatabase database, Query context, int generation) {
+		boolean module = context.pathParamMap().containsKey("module");
+		String name = module
+			? context.pathParam("module") + ":" + context.pathParam("module_version")
+			: context.pathParam("version");
+
+		JsonResponse response = OSL_CLOSURES.get(database, generation + "/" + name, k -> {
+			List<MavenVersion> closure;
+
+			try {
+				closure = module
+					? database.getOslModuleClosure(generation, context.pathParam("module"), context.pathParam("module_version"))
+					: database.getOslClosure(generation, context.pathParam("version"));
+			} catch (IllegalStateException e) {
+				// not cached, the poms are read again on the next refresh
+				throw new ServiceUnavailableResponse(e.getMessage());
+			}
+
+			return (closure == null) ? null : WebServer.toJson(200, closure);
+		});
+
+		if (response == null) {
+			throw new NotFoundResponse("no osl dependencies found for " + name);
+		}
+
+		return response;
+	}
+
+	private static List<?> getOslModuleInfo(VersionDatabase database, Query context, int generation) {
 		if (!context.pathParamMap().containsKey("module")) {
 			return null;
 		}
@@ -269,72 +441,88 @@ public class EndpointsV3 {
 			return null;
 		}
 
-		VersionManifest manifest = OrnitheMeta.database.getManifest(generation);
-
 		String module = context.pathParam("module");
 		String gameVersion = context.pathParam("game_version");
+		String baseVersion = context.pathParamMap().containsKey("base_version") ? context.pathParam("base_version") : null;
+
+		return getOslModuleInfo(database, generation, module, gameVersion, baseVersion);
+	}
+
+	static List<?> getOslModuleInfo(VersionDatabase database, int generation, String module, String gameVersion, String baseVersion) {
+		VersionManifest manifest = database.getManifest(generation);
 		Semver version = manifest.normalize(gameVersion);
 
 		if (version == null) {
 			return null;
 		}
 
-		List<MavenVersion> versions = OrnitheMeta.database.getOslModule(generation, module);
-
-		if (context.pathParamMap().containsKey("base_version")) {
-			String baseVersion = context.pathParam("base_version");
+		List<MavenVersion> versions = database.getOslModule(generation, module);
 
+		if (baseVersion != null) {
 			versions = versions.stream()
 					.filter(v -> v.getVersion().startsWith(baseVersion))
 					.collect(Collectors.toList());
 		}
 
 		versions = versions.stream()
-				.filter(v -> {
-					String minGameVersion = null;
-					String maxGameVersion = null;
-
-					String buildVersion = v.getVersion();
-					String[] parts = buildVersion.split("mc");
-
-					if (parts.length == 2) { // old format: <base version>+mc<min mc version>#<max mc version>
-						parts = parts[1].split("[#]");
-
-						if (parts.length == 2) {
-							minGameVersion = parts[0];
-							maxGameVersion = parts[1];
-						}
-					} else if (parts.length == 3) { // new format: <base version>+mc<min mc version>-mc<max mc version>
-						minGameVersion = parts[1].substring(0, parts[1].length() - 1);
-						maxGameVersion = parts[2];
-					} else { // module without mc dependency
-						return true;
-					}
-
-					try {
-						Semver vmin = manifest.normalize(minGameVersion);
-						Semver vmax = manifest.normalize(maxGameVersion);
-
-						return version.compareTo(vmin) >= 0 && version.compareTo(vmax) <= 0;
-					} catch (NoSuchElementException e) {
-						return false;
-					}
-				})
+				.filter(v -> supportsGameVersion(manifest, version, v))
 				.collect(Collectors.toList());
 
 		return versions;
 	}
 
-	public static void fileDownload(LoaderType type, String path, String ext, BiFunction<Integer, LoaderInfoV3, String> fileNameFunction, BiFunction<Integer, LoaderInfoV3, CompletableFuture<InputStream>> streamSupplier) {
-		jsonGetH("/" + type.getName() + "-loader/:game_version/:loader_version/" + path + "/" + ext, generation -> ctx -> {
-			Object obj = getLoaderInfo(ctx, generation, type);
+	/**
+	 * @return whether the given osl module build supports the given game
+	 * version, as encoded in its version
+	 */
+	static boolean supportsGameVersion(VersionManifest manifest, Semver version, MavenVersion module) {
+		String minGameVersion = null;
+		String maxGameVersion = null;
+
+		String buildVersion = module.getVersion();
+		String[] parts = buildVersion.split("mc");
+
+		if (parts.length == 2) { // old format: <base version>+mc<min mc version>#<max mc version>
+			parts = parts[1].split("[#]");
+
+			if (parts.length == 2) {
+				minGameVersion = parts[0];
+				maxGameVersion = parts[1];
+			}
+		} else if (parts.length == 3) { // new format: <base version>+mc<min mc version>-mc<max mc version>
+			minGameVersion = parts[1].substring(0, parts[1].length() - 1);
+			maxGameVersion = parts[2];
+		} else { // module without mc dependency
+			return true;
+		}
+
+		try {
+			Semver vmin = manifest.normalize(minGameVersion);
+			Semver vmax = manifest.normalize(maxGameVersion);
+
+			return version.compareTo(vmin) >= 0 && version.compareTo(vmax) <= 0;
+		} catch (NoSuchElementException e) {
+			return false;
+		}
+	}
+
+	public static void fileDownload(LoaderType type, String path, String ext, BiFunction<Integer, LoaderInfoV3, String> fileNameFunction, ProfileFunction streamSupplier) {
+		jsonGetH("/" + type.getName() + "-loader/:game_version/:loader_version/" + path + "/" + ext, WebServer.Limit.PROFILES, (snapshot, generation, ctx) -> {
+			VersionDatabase database = snapshot.v3;
+			Query query = Query.of(ctx);
+			Object obj = getLoaderInfo(database, query, generation, type);
+			ctx.status(query.status());
 
 			if (obj instanceof String) {
 				ctx.result((String) obj);
 			} else if (obj instanceof LoaderInfoV3) {
 				LoaderInfoV3 versionInfo = (LoaderInfoV3) obj;
 
-				CompletableFuture<InputStream> streamFuture = streamSupplier.apply(generation, versionInfo);
+				if (versionInfo.getLauncherMeta() == null) {
+					ctx.status(404);
+					ctx.result("no launcher meta found for " + versionInfo.getLoader().getMaven());
+					return;
+				}
 
 				if (ext.equals("zip")) {
 					//Set the filename to download
@@ -345,13 +533,33 @@ public class EndpointsV3 {
 					ctx.contentType("application/json");
 				}
 
-				//Cache for a day
-				ctx.header(Header.CACHE_CONTROL, "public, max-age=86400");
+				WebServer.cacheHeaders(ctx, snapshot, WebServer.config.cache.profileStaleWhileRevalidateSeconds);
 
-				ctx.result(streamFuture);
+				if (WebServer.notModified(ctx, snapshot)) {
+					return;
+				}
+
+				CompletableFuture<byte[]> streamFuture = WebServer.PROFILE_REQUESTS.get(WebServer.requestKey(snapshot, ctx), () -> streamSupplier.apply(database, snapshot.publishTime, generation, versionInfo));
+
+				WebServer.writeBytes(ctx, streamFuture);
 			} else {
 				ctx.result("An internal error occurred");
 			}
 		});
 	}
+
+	private interface GenerationHandler {
+
+		void handle(MetaSnapshot snapshot, int generation, Context ctx) throws Exception;
+
+	}
+
+	public interface ProfileFunction {
+
+		/**
+		 * @param time the publish time of the snapshot, which profiles use as their time
+		 */
+		CompletableFuture<byte[]> apply(VersionDatabase database, long time, int generation, LoaderInfoV3 info);
+
+	}
 }
@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.javalin.http.Context;
+import io.javalin.http.sse.SseClient;
+
+import net.ornithemc.meta.OrnitheMeta;
+import net.ornithemc.meta.data.MetaSnapshot;
+import net.ornithemc.meta.data.SnapshotChanges;
+import net.ornithemc.meta.data.SnapshotChanges.ArtifactChanges;
+import net.ornithemc.meta.web.WebServerConfig.EventsConfig;
+
+/**
+ * Pushes an event to every connected client whenever a published snapshot
+ * changes the v3 database. Events name the artifacts that changed and carry
+ * the snapshot id, which can be passed to {@code /v3/changes} for the
+ * details. Clients that reconnect with a {@code Last-Event-ID} are sent the
+ * events they missed, or a {@code resync} event if those are no longer known.
+ *
+ * <p>Idle connections hold no threads. Each event is serialized once and
+ * written to the clients by a small pool, so a slow client only holds up one
+ * writer until the connection times out. Writes to a client are queued and
+ * sent in order, and every event is queued once per client, so clients see
+ * ids in order, as resuming from {@code Last-Event-ID} depends on.
+ * Heartbeats keep connections through proxies alive and find clients that
+ * have gone away.
+ */
+public class EventStream {
+
+	private static final ObjectWriter WRITER = OrnitheMeta.MAPPER.writer().without(SerializationFeature.INDENT_OUTPUT);
+	private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+	// clients that fall this far behind are dropped, they can resume from their last event
+	private static final int MAX_QUEUED_WRITES = 64;
+
+	private final EventsConfig config;
+	private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+	private final ScheduledExecutorService heartbeats;
+	private final ExecutorService writers;
+
+	private final LongAdder events = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+
+	public EventStream(EventsConfig config) {
+		AtomicInteger threadCount = new AtomicInteger();
+
+		this.config = config;
+		this.heartbeats = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "events-heartbeat");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.writers = Executors.newFixedThreadPool(config.threads, task -> {
+			Thread thread = new Thread(task, "events-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		this.heartbeats.scheduleAtFixedRate(() -> broadcast(HEARTBEAT), config.heartbeatSeconds, config.heartbeatSeconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Registers a newly connected client.
+	 */
+	public void connect(SseClient sse) {
+		Client client = new Client(sse.ctx);
+		String lastEventId = sse.ctx.header("Last-Event-ID");
+
+		// registering and publishing are serialized, so that the catch-up is
+		// queued before any event, and no event is queued twice
+		synchronized (this) {
+			if (clients.size() >= config.maxClients) {
+				rejected.increment();
+
+				// ask the client to back off before reconnecting
+				writers.execute(() -> {
+					client.write(("retry: " + config.rejectedRetryMillis + "\n\n").getBytes(StandardCharsets.UTF_8));
+					client.close();
+				});
+
+				return;
+			}
+
+			MetaSnapshot snapshot = OrnitheMeta.snapshot();
+			StringBuilder sb = new StringBuilder();
+			sb.append("retry: ").append(config.retryMillis).append("\n\n");
+
+			if (lastEventId != null) {
+				catchUp(sb, snapshot, lastEventId);
+			}
+
+			client.lastEventId = snapshot.id;
+			client.enqueue(sb.toString().getBytes(StandardCharsets.UTF_8));
+			clients.add(client);
+		}
+	}
+
+	/**
+	 * Notifies all clients of the given snapshot, if it changed anything. This
+	 * is called after every published snapshot.
+	 */
+	public synchronized void publish(MetaSnapshot snapshot) {
+		List<SnapshotChanges> changes = snapshot.changes;
+
+		if (changes.isEmpty() || changes.get(changes.size() - 1).to != snapshot.id) {
+			return;
+		}
+
+		StringBuilder sb = new StringBuilder();
+		event(sb, changes.get(changes.size() - 1));
+		byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+		events.increment();
+
+		for (Client client : clients) {
+			// clients that connected after the snapshot was published have caught up to it
+			if (client.lastEventId < snapshot.id) {
+				client.lastEventId = snapshot.id;
+				client.enqueue(bytes);
+			}
+		}
+	}
+
+	public int getClients() {
+		return clients.size();
+	}
+
+	public long getEvents() {
+		return events.sum();
+	}
+
+	public long getRejected() {
+		return rejected.sum();
+	}
+
+	private void catchUp(StringBuilder sb, MetaSnapshot snapshot, String lastEventId) {
+		List<SnapshotChanges> missed;
+
+		try {
+			missed = snapshot.getChangesSince(Long.parseLong(lastEventId));
+		} catch (NumberFormatException e) {
+			missed = null;
+		}
+
+		if (missed == null) {
+			ObjectNode data = OrnitheMeta.MAPPER.createObjectNode();
+			data.put("snapshot", snapshot.id);
+
+			sb.append("id: ").append(snapshot.id).append('\n');
+			sb.append("event: resync\n");
+			sb.append("data: ").append(write(data)).append("\n\n");
+		} else {
+			for (SnapshotChanges changes : missed) {
+				event(sb, changes);
+			}
+		}
+	}
+
+	private static void event(StringBuilder sb, SnapshotChanges changes) {
+		ObjectNode data = OrnitheMeta.MAPPER.createObjectNode();
+		data.put("snapshot", changes.to);
+		data.put("previous", changes.from);
+		data.put("time", changes.time);
+
+		if (changes.intermediaryGenerations != null) {
+			data.putPOJO("intermediaryGenerations", changes.intermediaryGenerations);
+		}
+
+		ArrayNode artifacts = data.putArray("artifacts");
+
+		for (ArtifactChanges artifact : changes.artifacts) {
+			ObjectNode node = artifacts.addObject();
+			node.put("artifact", artifact.artifact);
+
+			if (artifact.generation != null) {
+				node.put("generation", artifact.generation);
+			}
+		}
+
+		sb.append("id: ").append(changes.to).append('\n');
+		sb.append("event: snapshot\n");
+		sb.append("data: ").append(write(data)).append("\n\n");
+	}
+
+	private static String write(ObjectNode data) {
+		try {
+			return WRITER.writeValueAsString(data);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void broadcast(byte[] bytes) {
+		for (Client client : clients) {
+			client.enqueue(bytes);
+		}
+	}
+
+	private class Client {
+
+		final Context ctx;
+		// the id of the latest event queued, guarded by the stream
+		long lastEventId;
+
+		private final Deque<byte[]> queue = new ArrayDeque<>();
+		private boolean draining;
+		private boolean closed;
+
+		Client(Context ctx) {
+			this.ctx = ctx;
+		}
+
+		/**
+		 * Queues the given bytes to be written after everything queued
+		 * before them.
+		 */
+		void enqueue(byte[] bytes) {
+			synchronized (this) {
+				if (closed) {
+					return;
+				}
+				if (queue.size() >= MAX_QUEUED_WRITES) {
+					queue.clear();
+					closeLater();
+					return;
+				}
+
+				queue.add(bytes);
+
+				if (draining) {
+					return;
+				}
+
+				draining = true;
+			}
+
+			writers.execute(this::drain);
+		}
+
+		private void drain() {
+			while (true) {
+				byte[] bytes;
+
+				synchronized (this) {
+					bytes = queue.poll();
+
+					if (bytes == null) {
+						draining = false;
+						return;
+					}
+				}
+
+				if (!write(bytes)) {
+					return;
+				}
+			}
+		}
+
+		/**
+		 * @return whether the client is still connected
+		 */
+		boolean write(byte[] bytes) {
+			try {
+				OutputStream os = ctx.res.getOutputStream();
+				os.write(bytes);
+				os.flush();
+
+				return true;
+			} catch (IOException | IllegalStateException e) {
+				close();
+				return false;
+			}
+		}
+
+		private void closeLater() {
+			clients.remove(this);
+			writers.execute(this::close);
+		}
+
+		void close() {
+			synchronized (this) {
+				if (closed) {
+					return;
+				}
+
+				closed = true;
+				queue.clear();
+			}
+
+			clients.remove(this);
+
+			try {
+				ctx.req.getAsyncContext().complete();
+			} catch (IllegalStateException e) {
+				// the request has already completed
+			}
+		}
+	}
+}
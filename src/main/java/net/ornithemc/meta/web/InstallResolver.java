@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.web;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.vdurmont.semver4j.Semver;
+
+import io.javalin.http.NotFoundResponse;
+
+import net.ornithemc.meta.data.VersionDatabase;
+import net.ornithemc.meta.utils.VersionManifest;
+import net.ornithemc.meta.web.WebServer.JsonResponse;
+import net.ornithemc.meta.web.models.InstallInfo;
+import net.ornithemc.meta.web.models.Library;
+import net.ornithemc.meta.web.models.LoaderType;
+import net.ornithemc.meta.web.models.MavenBuildGameVersion;
+import net.ornithemc.meta.web.models.MavenBuildVersion;
+import net.ornithemc.meta.web.models.MavenVersion;
+
+/**
+ * Resolves everything needed to install a loader for a game version in one
+ * go. The responses for every generation, loader type and game version with
+ * intermediary are serialized when a database is generated, before it is
+ * published, so that requests for them only look up the bytes.
+ */
+public class InstallResolver {
+
+	static final LoaderType[] LOADER_TYPES = { LoaderType.FABRIC, LoaderType.QUILT };
+
+	private static final String RESPONSES = "install";
+
+	/**
+	 * Resolves and serializes all installs of the given database.
+	 */
+	public static void precompute(VersionDatabase database) {
+		database.precomputed.compute(RESPONSES, responses -> {
+			for (int generation = 1; generation <= database.intermediaryGenerations.latestIntermediaryGeneration; generation++) {
+				for (LoaderType type : LOADER_TYPES) {
+					for (MavenVersion intermediary : database.getIntermediary(generation)) {
+						String gameVersion = intermediary.getVersion();
+						InstallInfo info = resolve(database, generation, type, gameVersion);
+
+						if (info != null) {
+							responses.putIfAbsent(key(generation, type, gameVersion), WebServer.toJson(200, info));
+						}
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * @return the serialized install if it was precomputed for the given
+	 * database, or else the install, resolved now
+	 */
+	static Object get(VersionDatabase database, int generation, LoaderType type, String gameVersion) {
+		Map<String, JsonResponse> responses = database.precomputed.get(RESPONSES);
+
+		if (responses != null) {
+			JsonResponse response = responses.get(key(generation, type, gameVersion));
+
+			if (response != null) {
+				return response;
+			}
+		} else {
+			InstallInfo info = resolve(database, generation, type, gameVersion);
+
+			if (info != null) {
+				return info;
+			}
+		}
+
+		throw new NotFoundResponse("no install found for " + gameVersion);
+	}
+
+	static InstallInfo resolve(VersionDatabase database, int generation, LoaderType type, String gameVersion) {
+		MavenVersion intermediary = database.findIntermediary(generation, gameVersion);
+		MavenBuildVersion loader = latest(database.getLoader(generation, type));
+
+		if (intermediary == null || loader == null) {
+			return null;
+		}
+
+		List<MavenBuildGameVersion> feather = EndpointsV3.filter(database.getFeather(generation), gameVersion);
+		List<Library> libraries = EndpointsV3.getLibraries(database, generation, gameVersion);
+
+		MavenVersion osl = latest(database.getOsl(generation));
+		List<MavenVersion> oslModules = new ArrayList<>();
+
+		if (osl != null) {
+			VersionManifest manifest = database.getManifest(generation);
+			Semver version = manifest.normalize(gameVersion);
+			List<MavenVersion> dependencies = getOslModules(database, generation, osl);
+
+			if (version != null && dependencies != null) {
+				for (MavenVersion module : dependencies) {
+					if (EndpointsV3.supportsGameVersion(manifest, version, module)) {
+						oslModules.add(module);
+					}
+				}
+			}
+		}
+
+		return new InstallInfo(
+			gameVersion,
+			generation,
+			intermediary,
+			feather.isEmpty() ? null : feather.get(0),
+			loader,
+			osl,
+			Collections.unmodifiableList(oslModules),
+			(libraries == null) ? Collections.emptyList() : libraries
+		);
+	}
+
+	/**
+	 * @return all modules the given osl version depends on, directly or
+	 * transitively, or only the direct dependencies if the poms of the
+	 * transitive ones could not all be read
+	 */
+	private static List<MavenVersion> getOslModules(VersionDatabase database, int generation, MavenVersion osl) {
+		try {
+			return database.getOslClosure(generation, osl.getVersion());
+		} catch (IllegalStateException e) {
+			return database.getOslDependencies(generation, osl.getVersion());
+		}
+	}
+
+	/**
+	 * @return the latest stable version, or the latest version if none is
+	 * stable
+	 */
+	private static <T extends MavenVersion> T latest(List<T> versions) {
+		if (versions == null || versions.isEmpty()) {
+			return null;
+		}
+
+		for (T version : versions) {
+			if (version.isStable()) {
+				return version;
+			}
+		}
+
+		return versions.get(0);
+	}
+
+	private static String key(int generation, LoaderType type, String gameVersion) {
+		return generation + "/" + type.getName() + "/" + gameVersion;
+	}
+}
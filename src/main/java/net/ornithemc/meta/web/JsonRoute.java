@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.web;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import io.javalin.http.BadRequestResponse;
+
+import net.ornithemc.meta.data.MetaSnapshot;
+
+/**
+ * A json route, kept so that the sub-queries of a batch request can be
+ * matched against the same routes as regular requests. Paths are matched
+ * segment by segment, the way Javalin does: {@code :name} segments match any
+ * segment, and trailing slashes are ignored.
+ */
+class JsonRoute {
+
+	final String route;
+	final WebServer.Limit limit;
+	final BiFunction<MetaSnapshot, Query, ?> function;
+	private final String[] segments;
+
+	JsonRoute(String route, WebServer.Limit limit, BiFunction<MetaSnapshot, Query, ?> function) {
+		this.route = route;
+		this.limit = limit;
+		this.function = function;
+		this.segments = split(route);
+	}
+
+	/**
+	 * @return the path parameters if the given path matches this route, or
+	 * null otherwise
+	 */
+	Map<String, String> match(String path) {
+		String[] pathSegments = split(path);
+
+		if (pathSegments.length != segments.length) {
+			return null;
+		}
+
+		Map<String, String> pathParams = null;
+
+		for (int i = 0; i < segments.length; i++) {
+			String segment = segments[i];
+
+			if (segment.startsWith(":")) {
+				if (pathParams == null) {
+					pathParams = new HashMap<>();
+				}
+
+				pathParams.put(segment.substring(1), decode(pathSegments[i]));
+			} else if (!segment.equals(pathSegments[i])) {
+				return null;
+			}
+		}
+
+		return (pathParams == null) ? Collections.emptyMap() : pathParams;
+	}
+
+	static Map<String, List<String>> parseQuery(String query) {
+		if (query == null || query.isEmpty()) {
+			return Collections.emptyMap();
+		}
+
+		Map<String, List<String>> queryParams = new LinkedHashMap<>();
+
+		for (String param : query.split("&")) {
+			int separator = param.indexOf('=');
+			String name = decode((separator < 0) ? param : param.substring(0, separator));
+			String value = (separator < 0) ? "" : decode(param.substring(separator + 1));
+
+			queryParams.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+		}
+
+		return queryParams;
+	}
+
+	private static String[] split(String path) {
+		return Arrays.stream(path.split("/")).filter(s -> !s.isEmpty()).toArray(String[]::new);
+	}
+
+	private static String decode(String s) {
+		try {
+			return URLDecoder.decode(s, "UTF-8");
+		} catch (UnsupportedEncodingException | IllegalArgumentException e) {
+			throw new BadRequestResponse("malformed path or query: " + s);
+		}
+	}
+}
@@ -33,6 +33,7 @@ import com.vdurmont.semver4j.Semver;
 
 import net.ornithemc.meta.OrnitheMeta;
 import net.ornithemc.meta.data.VersionDatabase;
+import net.ornithemc.meta.utils.LocalFiles;
 import net.ornithemc.meta.utils.VersionManifest;
 import net.ornithemc.meta.web.models.Library;
 
@@ -43,12 +44,19 @@ public class LibraryUpgradesV3 {
 	private static List<LibraryUpgrade> cache;
 
 	public static List<LibraryUpgrade> reload() {
-		if (Files.exists(FILE_PATH)) {
-			try (InputStream is = Files.newInputStream(FILE_PATH);) {
-				cache = OrnitheMeta.MAPPER.readValue(is, new TypeReference<List<LibraryUpgrade>>() { });
-			} catch (IOException e) {
-				OrnitheMeta.LOGGER.warn("unable to load library upgrades from file", e);
+		try {
+			// the file is only parsed again once it changes
+			List<LibraryUpgrade> upgrades = LocalFiles.read(FILE_PATH, file -> {
+				try (InputStream is = Files.newInputStream(file)) {
+					return OrnitheMeta.MAPPER.readValue(is, new TypeReference<List<LibraryUpgrade>>() { });
+				}
+			});
+
+			if (upgrades != null) {
+				cache = upgrades;
 			}
+		} catch (IOException e) {
+			OrnitheMeta.LOGGER.warn("unable to load library upgrades from file", e);
 		}
 
 		return cache;
@@ -65,13 +73,12 @@ public class LibraryUpgradesV3 {
 		public String minGameVersion;
 		public String maxGameVersion;
 
-		private boolean validated;
-
-		private void validate() {
-			if (this.validated) {
-				return;
-			}
-
+		/**
+		 * Checks the bounds of this upgrade against the generations and
+		 * manifests of the given database. Upgrades are shared between
+		 * databases, so this is done for every database that is generated.
+		 */
+		public void validate(VersionDatabase database) {
 			String[] parts = this.name.split("[:]");
 
 			if (parts.length < 3 || parts.length > 4) {
@@ -84,12 +91,12 @@ public class LibraryUpgradesV3 {
 
 			// generation bounds for checking version bounds
 			int minGen = (minIntermediaryGeneration == null) ? 1 : minIntermediaryGeneration;
-			int maxGen = (maxIntermediaryGeneration == null) ? VersionDatabase.config.latestIntermediaryGeneration : maxIntermediaryGeneration;
+			int maxGen = (maxIntermediaryGeneration == null) ? database.intermediaryGenerations.latestIntermediaryGeneration : maxIntermediaryGeneration;
 
 
 			if (minGameVersion != null || maxGameVersion != null) {
 				for (int generation = minGen; generation <= maxGen; generation++) {
-					VersionManifest manifest = OrnitheMeta.database.getManifest(generation);
+					VersionManifest manifest = database.getManifest(generation);
 
 					Semver minVersion = (minGameVersion == null) ? null : manifest.normalize(minGameVersion);
 					Semver maxVersion = (maxGameVersion == null) ? null : manifest.normalize(maxGameVersion);
@@ -107,13 +114,9 @@ public class LibraryUpgradesV3 {
 				}
 
 			}
-
-			this.validated = true;
 		}
 
-		public boolean test(int generation, String gameVersion) {
-			validate();
-
+		public boolean test(VersionDatabase database, int generation, String gameVersion) {
 			if (this.minIntermediaryGeneration != null && generation < this.minIntermediaryGeneration) {
 				return false;
 			}
@@ -121,7 +124,7 @@ public class LibraryUpgradesV3 {
 				return false;
 			}
 
-			VersionManifest manifest = OrnitheMeta.database.getManifest(generation);
+			VersionManifest manifest = database.getManifest(generation);
 			Semver version = manifest.normalize(gameVersion);
 
 			if (this.minGameVersion != null) {
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.web;
+
+import java.util.List;
+import java.util.Map;
+
+import io.javalin.http.NotFoundResponse;
+
+import net.ornithemc.meta.data.VersionDatabase;
+import net.ornithemc.meta.web.WebServer.JsonResponse;
+import net.ornithemc.meta.web.models.LookupEntry;
+
+/**
+ * Serves the entries of a maven coordinate from the database's lookup index.
+ * The responses for all coordinates are serialized when a database is
+ * generated, before it is published.
+ */
+public class LookupIndex {
+
+	private static final String RESPONSES = "lookup";
+
+	/**
+	 * Serializes the entries of every coordinate in the given database.
+	 */
+	public static void precompute(VersionDatabase database) {
+		database.precomputed.compute(RESPONSES, responses -> {
+			for (Map.Entry<String, List<LookupEntry>> e : database.getLookupIndex().entrySet()) {
+				responses.put(e.getKey(), WebServer.toJson(200, e.getValue()));
+			}
+		});
+	}
+
+	/**
+	 * @return the serialized entries if they were precomputed for the given
+	 * database, or else the entries
+	 */
+	static Object get(VersionDatabase database, String maven) {
+		Map<String, JsonResponse> responses = database.precomputed.get(RESPONSES);
+		Object entries;
+
+		if (responses != null) {
+			entries = responses.get(maven);
+		} else {
+			entries = database.lookup(maven);
+		}
+
+		if (entries == null) {
+			throw new NotFoundResponse("no entries found for " + maven);
+		}
+
+		return entries;
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.web;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import net.ornithemc.meta.OrnitheMeta;
+import net.ornithemc.meta.web.WebServer.JsonResponse;
+
+/**
+ * Responses serialized when a database is generated, before it is published,
+ * so that requests for them only look up the bytes. They are stored with the
+ * database they were computed from, and so can never be served for another.
+ */
+public final class PrecomputedResponses {
+
+	private final Map<String, Map<String, JsonResponse>> responses = new ConcurrentHashMap<>();
+
+	/**
+	 * Serializes the responses of the given name, replacing any that were
+	 * computed before.
+	 */
+	void compute(String name, Consumer<Map<String, JsonResponse>> serializer) {
+		long start = System.nanoTime();
+		Map<String, JsonResponse> computed = new HashMap<>();
+
+		serializer.accept(computed);
+		responses.put(name, computed);
+
+		OrnitheMeta.LOGGER.info("Precomputed {} {} responses in {} ms", computed.size(), name, (System.nanoTime() - start) / 1_000_000);
+	}
+
+	/**
+	 * @return the responses of the given name by key, or null if they were not
+	 * precomputed
+	 */
+	Map<String, JsonResponse> get(String name) {
+		return responses.get(name);
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.web;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.ornithemc.meta.web.WebServerConfig.ProfileExecutorConfig;
+
+/**
+ * The executor that profile jsons and zips are generated on. Its queue is
+ * bounded, and tasks submitted while the queue is full are rejected with a
+ * {@link java.util.concurrent.RejectedExecutionException}, which is answered
+ * with a 503 response.
+ */
+public class ProfileExecutor implements Executor {
+
+	private final ThreadPoolExecutor executor;
+	private final int retryAfterSeconds;
+
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder waitNanos = new LongAdder();
+	private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+	public ProfileExecutor(ProfileExecutorConfig config) {
+		AtomicInteger threadCount = new AtomicInteger();
+
+		this.executor = new ThreadPoolExecutor(config.threads, config.threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(config.queueSize), task -> {
+			Thread thread = new Thread(task, "profile-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}, (task, executor) -> {
+			rejected.increment();
+			new ThreadPoolExecutor.AbortPolicy().rejectedExecution(task, executor);
+		});
+		this.retryAfterSeconds = config.retryAfterSeconds;
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		long queued = System.nanoTime();
+
+		executor.execute(() -> {
+			long wait = System.nanoTime() - queued;
+
+			waitNanos.add(wait);
+			maxWaitNanos.accumulate(wait);
+
+			task.run();
+		});
+	}
+
+	public int getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+
+	public int getThreads() {
+		return executor.getMaximumPoolSize();
+	}
+
+	public int getActiveThreads() {
+		return executor.getActiveCount();
+	}
+
+	public int getQueueDepth() {
+		return executor.getQueue().size();
+	}
+
+	public int getQueueCapacity() {
+		return executor.getQueue().size() + executor.getQueue().remainingCapacity();
+	}
+
+	public long getCompletedTasks() {
+		return executor.getCompletedTaskCount();
+	}
+
+	public long getRejectedTasks() {
+		return rejected.sum();
+	}
+
+	/**
+	 * @return the total time tasks have spent waiting in the queue
+	 */
+	public long getTotalWaitNanos() {
+		return waitNanos.sum();
+	}
+
+	/**
+	 * @return the longest time a task has spent waiting in the queue
+	 */
+	public long getMaxWaitNanos() {
+		return maxWaitNanos.get();
+	}
+}
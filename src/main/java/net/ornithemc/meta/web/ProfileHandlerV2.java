@@ -24,26 +24,20 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import net.ornithemc.meta.OrnitheMeta;
 import net.ornithemc.meta.data.VersionDatabaseOld;
 import net.ornithemc.meta.web.models.LoaderInfoV2;
-import org.apache.commons.io.IOUtils;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 public class ProfileHandlerV2 {
 
-	private static final Executor EXECUTOR = Executors.newFixedThreadPool(2);
-	private static final DateFormat ISO_8601 = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ");
+	private static final int MAX_CACHED_ZIPS = 256;
+	private static final ScopedCache<String, byte[]> ZIPS = new ScopedCache<>(MAX_CACHED_ZIPS, () -> OrnitheMeta.snapshot().v2);
+	private static final DateTimeFormatter ISO_8601 = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ").withZone(ZoneId.systemDefault());
 
 	public static void setup() {
 		EndpointsV2.fileDownload("profile", "json", ProfileHandlerV2::getJsonFileName, ProfileHandlerV2::profileJson);
@@ -64,57 +58,54 @@ public class ProfileHandlerV2 {
 		return String.format("ornithe-loader-%s-%s.%s", info.getLoader().getVersion(), info.getCalamus().getVersion(), ext);
 	}
 
-	private static CompletableFuture<InputStream> profileJson(LoaderInfoV2 info) {
-		return CompletableFuture.supplyAsync(() -> getProfileJsonStream(info, "client"), EXECUTOR);
+	private static CompletableFuture<byte[]> profileJson(VersionDatabaseOld database, long time, LoaderInfoV2 info) {
+		return CompletableFuture.supplyAsync(() -> getProfileJson(info, "client", time), WebServer.profileExecutor);
 	}
 
-	private static CompletableFuture<InputStream> serverJson(LoaderInfoV2 info) {
-		return CompletableFuture.supplyAsync(() -> getProfileJsonStream(info, "server"), EXECUTOR);
+	private static CompletableFuture<byte[]> serverJson(VersionDatabaseOld database, long time, LoaderInfoV2 info) {
+		return CompletableFuture.supplyAsync(() -> getProfileJson(info, "server", time), WebServer.profileExecutor);
 	}
 
-	private static CompletableFuture<InputStream> profileZip(LoaderInfoV2 info) {
-		return profileJson(info)
-				.thenApply(inputStream -> packageZip(info, inputStream));
+	private static CompletableFuture<byte[]> profileZip(VersionDatabaseOld database, long time, LoaderInfoV2 info) {
+		String key = info.getLoader().getMaven() + "/" + info.getCalamus().getMaven();
+		// zips are memoized, so identical requests receive identical zips
+		byte[] zip = ZIPS.getIfPresent(database, key);
+
+		if (zip != null) {
+			return CompletableFuture.completedFuture(zip);
+		}
+
+		return CompletableFuture.supplyAsync(() -> ZIPS.get(database, key, k -> packageZip(info, time)), WebServer.profileExecutor);
 	}
 
-	private static InputStream packageZip(LoaderInfoV2 info, InputStream profileJson) {
+	// the zip entry and the profile carry the same time, so the zip only depends on the snapshot
+	private static byte[] packageZip(LoaderInfoV2 info, long time) {
 		String profileName = String.format("ornithe-loader-%s-%s", info.getLoader().getVersion(), info.getCalamus().getVersion());
+		byte[] profileJson = getProfileJson(info, "client", time);
 
 		try {
-			ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-
-			try (ZipOutputStream zipStream = new ZipOutputStream(byteArrayOutputStream)) {
-				//Write the profile json
-				zipStream.putNextEntry(new ZipEntry(profileName + "/" + profileName + ".json"));
-				IOUtils.copy(profileJson, zipStream);
-				zipStream.closeEntry();
-
-				//Write the dummy jar file
-				zipStream.putNextEntry(new ZipEntry(profileName + "/" + profileName + ".jar"));
-				zipStream.closeEntry();
-			}
-
-			//Is this really the best way??
-			return new ByteArrayInputStream(byteArrayOutputStream.toByteArray());
+			return ProfileZip.write(profileName, profileJson, time);
 		} catch (IOException e) {
 			throw new CompletionException(e);
 		}
 	}
 
-	private static InputStream getProfileJsonStream(LoaderInfoV2 info, String side) {
-		JsonNode jsonNode = buildProfileJson(info, side);
-		return new ByteArrayInputStream(jsonNode.toString().getBytes());
+	private static byte[] getProfileJson(LoaderInfoV2 info, String side, long time) {
+		JsonNode jsonNode = buildProfileJson(info, side, time);
+		return jsonNode.toString().getBytes(StandardCharsets.UTF_8);
 	}
 
 	//This is based of the installer code.
-	private static JsonNode buildProfileJson(LoaderInfoV2 info, String side) {
+	private static JsonNode buildProfileJson(LoaderInfoV2 info, String side, long time) {
 		JsonNode launcherMeta = info.getLauncherMeta();
 
 		String profileName = String.format("ornithe-loader-%s-%s", info.getLoader().getVersion(), info.getCalamus().getVersion());
 
 		JsonNode librariesNode = launcherMeta.get("libraries");
 		// Build the libraries array with the existing libs + loader and calamus
-		ArrayNode libraries = (ArrayNode) librariesNode.get("common");
+		// The launcher meta is shared, so it must not be modified
+		ArrayNode libraries = OrnitheMeta.MAPPER.createArrayNode();
+		libraries.addAll((ArrayNode) librariesNode.get("common"));
 		libraries.add(getLibrary(info.getCalamus().getMaven(), VersionDatabaseOld.ORNITHE_MAVEN_URL));
 		libraries.add(getLibrary(info.getLoader().getMaven(), VersionDatabaseOld.ORNITHE_MAVEN_URL));
 
@@ -122,13 +113,13 @@ public class ProfileHandlerV2 {
 			libraries.addAll((ArrayNode) librariesNode.get(side));
 		}
 
-		String currentTime = ISO_8601.format(new Date());
+		String profileTime = ISO_8601.format(Instant.ofEpochMilli(time));
 
 		ObjectNode profile = OrnitheMeta.MAPPER.createObjectNode();
 		profile.put("id", profileName);
 		profile.put("inheritsFrom", info.getCalamus().getVersion());
-		profile.put("releaseTime", currentTime);
-		profile.put("time", currentTime);
+		profile.put("releaseTime", profileTime);
+		profile.put("time", profileTime);
 		profile.put("type", "release");
 
 		JsonNode mainClassElement = launcherMeta.get("mainClass");
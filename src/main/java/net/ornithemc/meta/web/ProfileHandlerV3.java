@@ -27,27 +27,24 @@ import net.ornithemc.meta.OrnitheMeta;
 import net.ornithemc.meta.data.VersionDatabase;
 import net.ornithemc.meta.web.models.LoaderInfoV3;
 import net.ornithemc.meta.web.models.LoaderType;
-import org.apache.commons.io.IOUtils;
+import net.ornithemc.meta.web.models.MavenCoordinate;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 public class ProfileHandlerV3 {
 
-	private static final Executor EXECUTOR = Executors.newFixedThreadPool(2);
-	private static final DateFormat ISO_8601 = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ");
+	// the version whose logging config is used for older client profiles, prefetched while refreshing
+	public static final String LOGGING_CONFIG_VERSION = "17w15a";
+
+	private static final int MAX_CACHED_TEMPLATES = 4096;
+	private static final int MAX_CACHED_ZIPS = 1024;
+
+	// templates depend on the library upgrades and manifests, so they are only valid for one database
+	private static final ScopedCache<String, ProfileTemplate> TEMPLATES = new ScopedCache<>(MAX_CACHED_TEMPLATES, () -> OrnitheMeta.snapshot().v3);
+	private static final ScopedCache<String, byte[]> ZIPS = new ScopedCache<>(MAX_CACHED_ZIPS, () -> OrnitheMeta.snapshot().v3);
 
 	public static void setup() {
 		setup(LoaderType.FABRIC);
@@ -78,54 +75,59 @@ public class ProfileHandlerV3 {
 				ext);
 	}
 
-	private static CompletableFuture<InputStream> profileJson(int generation, LoaderInfoV3 info) {
-		return CompletableFuture.supplyAsync(() -> getProfileJsonStream(generation, info, "client"), EXECUTOR);
+	private static String getProfileName(int generation, LoaderInfoV3 info) {
+		return String.format("%s-loader-%s-%s-ornithe-gen%d",
+				info.getLoaderType().getName(),
+				info.getLoader().getVersion(),
+				info.getIntermediary().getVersion(),
+				generation);
 	}
 
-	private static CompletableFuture<InputStream> serverJson(int generation, LoaderInfoV3 info) {
-		return CompletableFuture.supplyAsync(() -> getProfileJsonStream(generation, info, "server"), EXECUTOR);
+	private static CompletableFuture<byte[]> profileJson(VersionDatabase database, long time, int generation, LoaderInfoV3 info) {
+		return CompletableFuture.supplyAsync(() -> getProfileTemplate(database, generation, info, "client").render(time), WebServer.profileExecutor);
 	}
 
-	private static CompletableFuture<InputStream> profileZip(int generation, LoaderInfoV3 info) {
-		return profileJson(generation, info)
-				.thenApply(inputStream -> packageZip(generation, info, inputStream));
+	private static CompletableFuture<byte[]> serverJson(VersionDatabase database, long time, int generation, LoaderInfoV3 info) {
+		return CompletableFuture.supplyAsync(() -> getProfileTemplate(database, generation, info, "server").render(time), WebServer.profileExecutor);
 	}
 
-	private static InputStream packageZip(int generation, LoaderInfoV3 info, InputStream profileJson) {
-		String profileName = String.format("%s-loader-%s-%s-ornithe-gen%d",
-				info.getLoaderType().getName(),
-				info.getLoader().getVersion(),
-				info.getIntermediary().getVersion(),
-				generation);
+	private static CompletableFuture<byte[]> profileZip(VersionDatabase database, long time, int generation, LoaderInfoV3 info) {
+		String key = getCacheKey(generation, info, "client");
+		// zips are memoized, so identical requests receive identical zips
+		byte[] zip = ZIPS.getIfPresent(database, key);
 
-		try {
-			ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		if (zip != null) {
+			return CompletableFuture.completedFuture(zip);
+		}
 
-			try (ZipOutputStream zipStream = new ZipOutputStream(byteArrayOutputStream)) {
-				//Write the profile json
-				zipStream.putNextEntry(new ZipEntry(profileName + "/" + profileName + ".json"));
-				IOUtils.copy(profileJson, zipStream);
-				zipStream.closeEntry();
+		return CompletableFuture.supplyAsync(() -> ZIPS.get(database, key, k -> packageZip(database, time, generation, info)), WebServer.profileExecutor);
+	}
 
-				//Write the dummy jar file
-				zipStream.putNextEntry(new ZipEntry(profileName + "/" + profileName + ".jar"));
-				zipStream.closeEntry();
-			}
+	// the zip entry and the profile carry the same time, so the zip only depends on the snapshot
+	static byte[] packageZip(VersionDatabase database, long time, int generation, LoaderInfoV3 info) {
+		String profileName = getProfileName(generation, info);
+		byte[] profileJson = getProfileTemplate(database, generation, info, "client").render(time);
 
-			//Is this really the best way??
-			return new ByteArrayInputStream(byteArrayOutputStream.toByteArray());
+		try {
+			return ProfileZip.write(profileName, profileJson, time);
 		} catch (IOException e) {
 			throw new CompletionException(e);
 		}
 	}
 
-	private static InputStream getProfileJsonStream(int generation, LoaderInfoV3 info, String side) {
-		JsonNode jsonNode = buildProfileJson(generation, info, side);
-		return new ByteArrayInputStream(jsonNode.toString().getBytes());
+	private static ProfileTemplate getProfileTemplate(VersionDatabase database, int generation, LoaderInfoV3 info, String side) {
+		return TEMPLATES.get(database, getCacheKey(generation, info, side), key -> {
+			return ProfileTemplate.compile(buildProfileJson(database, generation, info, side));
+		});
+	}
+
+	private static String getCacheKey(int generation, LoaderInfoV3 info, String side) {
+		return String.format("%d/%s/%s/%s/%s", generation, info.getLoader().getMaven(), info.getIntermediary().getMaven(), info.getLoaderType().getName(), side);
 	}
 
 	//This is based of the installer code.
-	private static JsonNode buildProfileJson(int generation, LoaderInfoV3 info, String side) {
+	//The time fields are left as slots to be filled in when the template is rendered.
+	static JsonNode buildProfileJson(VersionDatabase database, int generation, LoaderInfoV3 info, String side) {
 		JsonNode launcherMeta = info.getLauncherMeta();
 
 		String profileName = String.format("%s-loader-%s-%s-ornithe-gen%d",
@@ -136,7 +138,9 @@ public class ProfileHandlerV3 {
 
 		JsonNode librariesNode = launcherMeta.get("libraries");
 		// Build the libraries array with the existing libs + loader and intermediary
-		ArrayNode libraries = (ArrayNode) librariesNode.get("common");
+		// The launcher meta is shared, so it must not be modified
+		ArrayNode libraries = OrnitheMeta.MAPPER.createArrayNode();
+		libraries.addAll((ArrayNode) librariesNode.get("common"));
 		libraries.add(getLibrary(info.getIntermediary().getMaven(), VersionDatabase.ORNITHE_MAVEN_URL));
 		libraries.add(getLibrary(info.getLoader().getMaven(), info.getLoaderType().getMavenUrl()));
 
@@ -144,13 +148,11 @@ public class ProfileHandlerV3 {
 			libraries.addAll((ArrayNode) librariesNode.get(side));
 		}
 
-		String currentTime = ISO_8601.format(new Date());
-
 		ObjectNode profile = OrnitheMeta.MAPPER.createObjectNode();
 		profile.put("id", profileName);
 		profile.put("inheritsFrom", String.format("%s-vanilla", info.getGame(side)));
-		profile.put("releaseTime", currentTime);
-		profile.put("time", currentTime);
+		profile.put("releaseTime", ProfileTemplate.TIME_SLOT);
+		profile.put("time", ProfileTemplate.TIME_SLOT);
 		profile.put("type", "release");
 
 		JsonNode mainClassNode = launcherMeta.get("mainClass");
@@ -183,22 +185,23 @@ public class ProfileHandlerV3 {
 		profile.set("arguments", arguments);
 		profile.set("libraries", libraries);
 
-		Semver version = OrnitheMeta.database.getManifest(generation).normalize(info.getGame(side));
-		Semver boundary = OrnitheMeta.database.getManifest(generation).normalize("17w15a");
+		Semver version = database.getManifest(generation).normalize(info.getGame(side));
+		Semver boundary = database.getManifest(generation).normalize(LOGGING_CONFIG_VERSION);
 
 		if (version.compareTo(boundary) < 0 && "client".equals(side)) {
-			Optional<Semver> log4jUpgrade = OrnitheMeta.database.libraryUpgrades.stream()
-				.filter(l -> l.test(generation, info.getGame(side)))
-				.filter(l -> l.name.split("[:]")[1].equals("log4j-core"))
+			Optional<Semver> log4jUpgrade = database.libraryUpgrades.stream()
+				.filter(l -> l.test(database, generation, info.getGame(side)))
+				.map(l -> MavenCoordinate.parse(l.name))
+				.filter(c -> c.getArtifact().equals("log4j-core"))
 				.findFirst()
-				.map(l -> new Semver(l.name.split("[:]")[2]));
+				.map(c -> new Semver(c.getVersion()));
 
 			if (log4jUpgrade.isPresent()) {
 				Semver log4jVersion = log4jUpgrade.get();
 				Semver log4jBoundary = new Semver("2.8.1");
 
 				if (log4jVersion.compareTo(log4jBoundary) >= 0) {
-					profile.set("logging", OrnitheMeta.database.getManifest(generation).getLoggingConfig("17w15a"));
+					profile.set("logging", database.getManifest(generation).getLoggingConfig(LOGGING_CONFIG_VERSION));
 				}
 			}
 		}
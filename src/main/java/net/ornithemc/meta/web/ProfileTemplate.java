@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A profile json that has been serialized ahead of time. Only the time
+ * fields are filled in when the profile is rendered.
+ */
+public class ProfileTemplate {
+
+	// control characters are always escaped, so the serialized slot cannot clash with other content
+	public static final String TIME_SLOT = "\0time\0";
+
+	private static final String SERIALIZED_TIME_SLOT = "\\u0000time\\u0000";
+	private static final DateTimeFormatter ISO_8601 = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ").withZone(ZoneId.systemDefault());
+
+	private static volatile Timestamp timestamp;
+
+	private final byte[][] parts;
+
+	private ProfileTemplate(byte[][] parts) {
+		this.parts = parts;
+	}
+
+	/**
+	 * Compiles the given profile json. Its time fields should be set to {@link #TIME_SLOT}.
+	 */
+	public static ProfileTemplate compile(JsonNode profile) {
+		String json = profile.toString();
+		List<byte[]> parts = new ArrayList<>();
+
+		for (int start = 0; ; ) {
+			int end = json.indexOf(SERIALIZED_TIME_SLOT, start);
+
+			if (end < 0) {
+				parts.add(json.substring(start).getBytes(StandardCharsets.UTF_8));
+				break;
+			}
+
+			parts.add(json.substring(start, end).getBytes(StandardCharsets.UTF_8));
+			start = end + SERIALIZED_TIME_SLOT.length();
+		}
+
+		return new ProfileTemplate(parts.toArray(new byte[0][]));
+	}
+
+	public int length(byte[] time) {
+		int length = time.length * (parts.length - 1);
+
+		for (byte[] part : parts) {
+			length += part.length;
+		}
+
+		return length;
+	}
+
+	public byte[] render(long time) {
+		return render(formatTime(time));
+	}
+
+	public byte[] render(byte[] time) {
+		byte[] bytes = new byte[length(time)];
+		int offset = 0;
+
+		for (int i = 0; i < parts.length; i++) {
+			if (i > 0) {
+				System.arraycopy(time, 0, bytes, offset, time.length);
+				offset += time.length;
+			}
+
+			System.arraycopy(parts[i], 0, bytes, offset, parts[i].length);
+			offset += parts[i].length;
+		}
+
+		return bytes;
+	}
+
+	public void writeTo(OutputStream os, byte[] time) throws IOException {
+		for (int i = 0; i < parts.length; i++) {
+			if (i > 0) {
+				os.write(time);
+			}
+
+			os.write(parts[i]);
+		}
+	}
+
+	/**
+	 * @return the given time as it appears in profile jsons, formatting the same second only once
+	 */
+	public static byte[] formatTime(long time) {
+		long second = time / 1000;
+		Timestamp t = timestamp;
+
+		if (t == null || t.second != second) {
+			timestamp = t = new Timestamp(second, ISO_8601.format(Instant.ofEpochSecond(second)).getBytes(StandardCharsets.UTF_8));
+		}
+
+		return t.bytes;
+	}
+
+	private static class Timestamp {
+
+		final long second;
+		final byte[] bytes;
+
+		Timestamp(long second, byte[] bytes) {
+			this.second = second;
+			this.bytes = bytes;
+		}
+	}
+}
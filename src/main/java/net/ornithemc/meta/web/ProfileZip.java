@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes profile zips, containing the profile json and an empty dummy jar.
+ * Both entries are stored uncompressed, which means the size of the zip is
+ * known before it is written.
+ */
+public class ProfileZip {
+
+	private static final int LOCAL_HEADER_SIZE = 30;
+	private static final int CENTRAL_HEADER_SIZE = 46;
+	private static final int END_HEADER_SIZE = 22;
+
+	public static int length(String profileName, int jsonLength) {
+		return entryLength(profileName + "/" + profileName + ".json", jsonLength)
+			+ entryLength(profileName + "/" + profileName + ".jar", 0)
+			+ END_HEADER_SIZE;
+	}
+
+	private static int entryLength(String name, int size) {
+		int nameLength = name.getBytes(StandardCharsets.UTF_8).length;
+		return LOCAL_HEADER_SIZE + nameLength + size + CENTRAL_HEADER_SIZE + nameLength;
+	}
+
+	/**
+	 * Writes a profile zip into a buffer of the exact size of the zip.
+	 */
+	public static byte[] write(String profileName, byte[] json, long time) throws IOException {
+		FixedOutputStream os = new FixedOutputStream(length(profileName, json.length));
+
+		try (ZipOutputStream zipStream = new ZipOutputStream(os)) {
+			//Write the profile json
+			zipStream.putNextEntry(storedEntry(profileName + "/" + profileName + ".json", json, time));
+			zipStream.write(json);
+			zipStream.closeEntry();
+
+			//Write the dummy jar file
+			zipStream.putNextEntry(storedEntry(profileName + "/" + profileName + ".jar", new byte[0], time));
+			zipStream.closeEntry();
+		}
+
+		return os.toByteArray();
+	}
+
+	private static ZipEntry storedEntry(String name, byte[] data, long time) {
+		CRC32 crc = new CRC32();
+		crc.update(data);
+
+		ZipEntry entry = new ZipEntry(name);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(data.length);
+		entry.setCompressedSize(data.length);
+		entry.setCrc(crc.getValue());
+		entry.setTime(time);
+
+		return entry;
+	}
+
+	private static class FixedOutputStream extends OutputStream {
+
+		private final byte[] bytes;
+		private int count;
+
+		FixedOutputStream(int length) {
+			this.bytes = new byte[length];
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			ensureCapacity(1);
+			bytes[count++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			ensureCapacity(len);
+			System.arraycopy(b, off, bytes, count, len);
+			count += len;
+		}
+
+		private void ensureCapacity(int len) throws IOException {
+			if (count + len > bytes.length) {
+				throw new IOException("profile zip is larger than its precomputed length of " + bytes.length + " bytes");
+			}
+		}
+
+		byte[] toByteArray() throws IOException {
+			if (count != bytes.length) {
+				throw new IOException("profile zip is smaller than its precomputed length of " + bytes.length + " bytes");
+			}
+
+			return bytes;
+		}
+	}
+}
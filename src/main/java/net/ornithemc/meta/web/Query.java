@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.web;
+
+import java.util.List;
+import java.util.Map;
+
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.Context;
+
+/**
+ * The parameters of a json request: the path parameters matched by its route
+ * and the query parameters. Json endpoints read their parameters from this
+ * rather than from the Javalin context, so that they can also be evaluated
+ * for the sub-queries of a batch request.
+ */
+public class Query {
+
+	private final Map<String, String> pathParams;
+	private final Map<String, List<String>> queryParams;
+	private int status = 200;
+
+	Query(Map<String, String> pathParams, Map<String, List<String>> queryParams) {
+		this.pathParams = pathParams;
+		this.queryParams = queryParams;
+	}
+
+	static Query of(Context ctx) {
+		return new Query(ctx.pathParamMap(), ctx.queryParamMap());
+	}
+
+	public Map<String, String> pathParamMap() {
+		return pathParams;
+	}
+
+	public String pathParam(String name) {
+		return pathParams.get(name);
+	}
+
+	public String queryParam(String name) {
+		List<String> values = queryParams.get(name);
+		return (values == null || values.isEmpty()) ? null : values.get(0);
+	}
+
+	/**
+	 * @throws BadRequestResponse if the parameter is not a number
+	 */
+	public int queryParamAsInt(String name, int defaultValue) {
+		String value = queryParam(name);
+
+		if (value == null) {
+			return defaultValue;
+		}
+
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new BadRequestResponse("query parameter '" + name + "' with value '" + value + "' is not a number");
+		}
+	}
+
+	/**
+	 * @throws BadRequestResponse if the parameter is missing or not a number
+	 */
+	public long queryParamAsLong(String name) {
+		String value = queryParam(name);
+
+		if (value == null) {
+			throw new BadRequestResponse("query parameter '" + name + "' is required");
+		}
+
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			throw new BadRequestResponse("query parameter '" + name + "' with value '" + value + "' is not a number");
+		}
+	}
+
+	/**
+	 * Sets the status of the response, if the endpoint answers with anything
+	 * but 200.
+	 */
+	public void status(int status) {
+		this.status = status;
+	}
+
+	public int status() {
+		return status;
+	}
+}
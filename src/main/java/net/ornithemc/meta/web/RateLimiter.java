@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.web;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.ornithemc.meta.web.WebServerConfig.LimitConfig;
+
+/**
+ * Token bucket rate limiting per client. Each client gets a bucket holding
+ * up to {@code burst} tokens, which refills at {@code perSecond} tokens per
+ * second, and every request takes one token. Buckets of clients that have
+ * been idle long enough to be full again are dropped.
+ */
+public class RateLimiter {
+
+	private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+	private final double capacity;
+	private final double tokensPerNano;
+	private final long idleNanos;
+	private final AtomicLong nextSweep;
+
+	private final LongAdder limited = new LongAdder();
+
+	public RateLimiter(LimitConfig config, int idleSeconds) {
+		if (config.burst < 1 || config.perSecond <= 0) {
+			throw new RuntimeException("invalid rate limit: burst " + config.burst + ", per second " + config.perSecond);
+		}
+
+		this.capacity = config.burst;
+		this.tokensPerNano = config.perSecond / TimeUnit.SECONDS.toNanos(1);
+		// a bucket is only dropped once it would have refilled completely
+		this.idleNanos = Math.max(TimeUnit.SECONDS.toNanos(idleSeconds), (long) Math.ceil(capacity / tokensPerNano));
+		this.nextSweep = new AtomicLong(System.nanoTime() + idleNanos);
+	}
+
+	/**
+	 * Takes a token from the bucket of the given client.
+	 *
+	 * @return 0 if the request may proceed, otherwise the time in nanoseconds
+	 * until the client has a token again.
+	 */
+	public long acquire(String client) {
+		long now = System.nanoTime();
+		long sweep = nextSweep.get();
+
+		if (now - sweep >= 0 && nextSweep.compareAndSet(sweep, now + idleNanos)) {
+			buckets.values().removeIf(bucket -> now - bucket.updated > idleNanos);
+		}
+
+		Bucket bucket = buckets.get(client);
+
+		if (bucket == null) {
+			bucket = buckets.computeIfAbsent(client, key -> new Bucket(capacity, now));
+		}
+
+		long wait = bucket.acquire(now, capacity, tokensPerNano);
+
+		if (wait > 0) {
+			limited.increment();
+		}
+
+		return wait;
+	}
+
+	public int getClients() {
+		return buckets.size();
+	}
+
+	public long getLimited() {
+		return limited.sum();
+	}
+
+	private static class Bucket {
+
+		private double tokens;
+		private volatile long updated;
+
+		Bucket(double tokens, long now) {
+			this.tokens = tokens;
+			this.updated = now;
+		}
+
+		synchronized long acquire(long now, double capacity, double tokensPerNano) {
+			if (now > updated) {
+				tokens = Math.min(capacity, tokens + (now - updated) * tokensPerNano);
+				updated = now;
+			}
+
+			if (tokens >= 1) {
+				tokens--;
+				return 0;
+			}
+
+			return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+		}
+	}
+}
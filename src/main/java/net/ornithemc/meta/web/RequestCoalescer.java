@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.web;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent identical requests share one computation. The first
+ * request for a key computes the response, and any request for the same key
+ * that arrives before it is done waits for that response instead of
+ * computing its own. Nothing is kept once the computation completes.
+ */
+public class RequestCoalescer<V> {
+
+	private final Map<String, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+	private final LongAdder computed = new LongAdder();
+	private final LongAdder coalesced = new LongAdder();
+
+	/**
+	 * Returns the response for the given key, either from a computation that
+	 * is already in flight or from the given supplier. If the supplier throws,
+	 * the exception is rethrown to the caller and passed on to any waiters.
+	 */
+	public CompletableFuture<V> get(String key, Supplier<CompletableFuture<V>> supplier) {
+		CompletableFuture<V> future = new CompletableFuture<>();
+		CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+
+		if (existing != null) {
+			coalesced.increment();
+			return existing;
+		}
+
+		computed.increment();
+
+		try {
+			supplier.get().whenComplete((value, t) -> {
+				inFlight.remove(key, future);
+
+				if (t == null) {
+					future.complete(value);
+				} else {
+					future.completeExceptionally(t);
+				}
+			});
+		} catch (RuntimeException e) {
+			inFlight.remove(key, future);
+			future.completeExceptionally(e);
+
+			throw e;
+		}
+
+		return future;
+	}
+
+	public int getInFlight() {
+		return inFlight.size();
+	}
+
+	public long getComputed() {
+		return computed.sum();
+	}
+
+	public long getCoalesced() {
+		return coalesced.sum();
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.web;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A bounded cache for values derived from a database, which evicts the least
+ * recently used entry once it is full. Entries are only valid for the database
+ * they were computed from, and are dropped once a value is requested for the
+ * current database. Values requested for any other database,
+ * such as by requests still in flight after a refresh, are computed but never
+ * cached, so that they cannot evict the entries of the current database.
+ */
+public class ScopedCache<K, V> {
+
+	private final int maxSize;
+	private final Supplier<?> currentScope;
+
+	private volatile Entries<K, V> entries;
+
+	public ScopedCache(int maxSize, Supplier<?> currentScope) {
+		this.maxSize = maxSize;
+		this.currentScope = currentScope;
+		this.entries = new Entries<>(null, maxSize);
+	}
+
+	public V getIfPresent(Object scope, K key) {
+		Entries<K, V> entries = entries(scope);
+		return (entries == null) ? null : entries.get(key);
+	}
+
+	public V get(Object scope, K key, Function<K, V> function) {
+		Entries<K, V> entries = entries(scope);
+
+		if (entries == null) {
+			return function.apply(key);
+		}
+
+		V value = entries.get(key);
+
+		if (value == null) {
+			// computed outside the lock, so that slow values do not block other keys
+			value = function.apply(key);
+
+			if (value != null) {
+				value = entries.putIfAbsent(key, value);
+			}
+		}
+
+		return value;
+	}
+
+	private Entries<K, V> entries(Object scope) {
+		Entries<K, V> entries = this.entries;
+
+		if (entries.scope != scope) {
+			if (scope != currentScope.get()) {
+				return null;
+			}
+
+			synchronized (this) {
+				entries = this.entries;
+
+				if (entries.scope != scope) {
+					this.entries = entries = new Entries<>(scope, maxSize);
+				}
+			}
+		}
+
+		return entries;
+	}
+
+	private static class Entries<K, V> {
+
+		final Object scope;
+		final Map<K, V> values;
+
+		Entries(Object scope, int maxSize) {
+			this.scope = scope;
+			this.values = new LinkedHashMap<K, V>(16, 0.75F, true) {
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+					return size() > maxSize;
+				}
+			};
+		}
+
+		synchronized V get(K key) {
+			return values.get(key);
+		}
+
+		/**
+		 * @return the value already cached for the key, or else the given value
+		 */
+		synchronized V putIfAbsent(K key, V value) {
+			V prev = values.putIfAbsent(key, value);
+			return (prev == null) ? value : prev;
+		}
+	}
+}
@@ -24,51 +24,540 @@ import io.javalin.core.util.Header;
 import io.javalin.core.util.RouteOverviewPlugin;
 import io.javalin.http.Context;
 import io.javalin.http.Handler;
+import io.javalin.http.HttpResponseException;
+import io.javalin.http.NotFoundResponse;
+import io.javalin.http.sse.SseHandler;
 import net.ornithemc.meta.OrnitheMeta;
+import net.ornithemc.meta.data.MetaSnapshot;
+import net.ornithemc.meta.metrics.Metrics;
+import net.ornithemc.meta.metrics.RouteMetrics;
+import net.ornithemc.meta.web.WebServerConfig.RateLimitConfig;
+import net.ornithemc.meta.web.WebServerConfig.ServerConfig;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 import java.util.function.Function;
-import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
 public class WebServer {
 
+	private static final String BYTES_WRITTEN = "ornithe-meta.bytes-written";
+	// lets clients ask for the changes since the snapshot a response was derived from
+	public static final String SNAPSHOT_ID = "X-Snapshot-Id";
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+	private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+	private static final RequestCoalescer<JsonResponse> JSON_REQUESTS = new RequestCoalescer<>();
+	// in order of registration, which is the order in which they are matched
+	private static final List<JsonRoute> JSON_ROUTES = new ArrayList<>();
+	public static final RequestCoalescer<byte[]> PROFILE_REQUESTS = new RequestCoalescer<>();
+
 	public static Javalin javalin;
+	public static WebServerConfig config;
+	public static ProfileExecutor profileExecutor;
+	// null while server-sent events are disabled
+	public static EventStream events;
+
+	// null while rate limiting is disabled
+	private static RateLimiter readLimiter;
+	private static RateLimiter databaseLimiter;
+	private static RateLimiter profileLimiter;
+	// null while the access log is disabled
+	private static AccessLog accessLog;
+
+	public static void start() throws IOException {
+		config = WebServerConfig.load();
+		profileExecutor = new ProfileExecutor(config.profileExecutor);
+
+		if (config.rateLimit.enabled) {
+			RateLimitConfig rateLimit = config.rateLimit;
+
+			readLimiter = new RateLimiter(rateLimit.reads, rateLimit.idleSeconds);
+			databaseLimiter = new RateLimiter(rateLimit.database, rateLimit.idleSeconds);
+			profileLimiter = new RateLimiter(rateLimit.profiles, rateLimit.idleSeconds);
+		}
+
+		if (config.accessLog.enabled) {
+			accessLog = new AccessLog(config.accessLog);
+		}
+
+		QueuedThreadPool threadPool = new QueuedThreadPool(config.server.maxThreads, config.server.minThreads, config.server.threadIdleTimeoutMillis);
+		threadPool.setName("jetty");
 
-	public static void start() {
 		javalin = Javalin.create(config -> {
 			config.registerPlugin(new RouteOverviewPlugin("/"));
 			config.showJavalinBanner = false;
 			config.enableCorsForAllOrigins();
-		}).start(5555); // set to 80 while testing
+			config.server(() -> createServer(threadPool));
+		}).start(config.server.port);
+
+		javalin.exception(RejectedExecutionException.class, (e, ctx) -> {
+			// shed load rather than queueing profile requests indefinitely
+			ctx.status(503);
+			ctx.header("Retry-After", Integer.toString(profileExecutor.getRetryAfterSeconds()));
+			ctx.result("Too many requests, try again later");
+		});
 
 		EndpointsV2.setup();
 		EndpointsV3.setup();
+
+		if (config.events.enabled) {
+			events = new EventStream(config.events);
+			// connections are set up through the same rate limiting and metrics as other routes
+			javalin.get("/v3/events", instrument("/v3/events", new SseHandler(events::connect)));
+
+			Metrics.gauge("events_clients", "Clients connected to the event stream.", events::getClients);
+			Metrics.counter("events_published_total", "Events pushed to the event stream.", events::getEvents);
+			Metrics.counter("events_rejected_total", "Clients turned away because the event stream was full.", events::getRejected);
+		}
+
+		Metrics.gauge("profile_executor_threads", "Threads generating profiles.", profileExecutor::getThreads);
+		Metrics.gauge("profile_executor_active_threads", "Threads currently generating a profile.", profileExecutor::getActiveThreads);
+		Metrics.gauge("profile_executor_queue_depth", "Profile requests waiting for a thread.", profileExecutor::getQueueDepth);
+		Metrics.gauge("profile_executor_queue_capacity", "Profile requests that can wait for a thread before new ones are rejected.", profileExecutor::getQueueCapacity);
+		Metrics.counter("profile_executor_completed_total", "Profile requests that have been handled.", profileExecutor::getCompletedTasks);
+		Metrics.counter("profile_executor_rejected_total", "Profile requests rejected because the queue was full.", profileExecutor::getRejectedTasks);
+		Metrics.counter("profile_executor_wait_seconds_total", "Time profile requests have spent waiting for a thread.", () -> profileExecutor.getTotalWaitNanos() / 1e9);
+		Metrics.gauge("profile_executor_max_wait_seconds", "Longest time a profile request has spent waiting for a thread.", () -> profileExecutor.getMaxWaitNanos() / 1e9);
+
+		Metrics.gauge("requests_in_flight", "Distinct requests currently being computed.", () -> JSON_REQUESTS.getInFlight() + PROFILE_REQUESTS.getInFlight());
+		Metrics.counter("requests_computed_total", "Requests that computed their own response.", () -> JSON_REQUESTS.getComputed() + PROFILE_REQUESTS.getComputed());
+		Metrics.counter("requests_coalesced_total", "Requests that shared the response of an identical request in flight.", () -> JSON_REQUESTS.getCoalesced() + PROFILE_REQUESTS.getCoalesced());
+
+		if (config.rateLimit.enabled) {
+			Metrics.gauge("rate_limit_clients", "Clients currently tracked by the rate limiters.", () -> readLimiter.getClients() + databaseLimiter.getClients() + profileLimiter.getClients());
+			Metrics.counter("rate_limited_total", "Requests answered with 429 because the client exceeded its rate limit.", () -> readLimiter.getLimited() + databaseLimiter.getLimited() + profileLimiter.getLimited());
+		}
+
+		if (config.accessLog.enabled) {
+			Metrics.counter("access_log_written_total", "Requests written to the access log.", accessLog::getWritten);
+			Metrics.counter("access_log_dropped_total", "Sampled requests dropped because the access log fell behind.", accessLog::getDropped);
+		}
+
+		Metrics.gauge("jetty_threads", "Threads in the http server's thread pool.", threadPool::getThreads);
+		Metrics.gauge("jetty_busy_threads", "Threads in the http server's thread pool that are busy.", threadPool::getBusyThreads);
+		Metrics.gauge("jetty_idle_threads", "Threads in the http server's thread pool that are idle.", threadPool::getIdleThreads);
+		Metrics.gauge("jetty_max_threads", "Maximum number of threads in the http server's thread pool.", threadPool::getMaxThreads);
+		Metrics.gauge("jetty_queue_size", "Jobs waiting for a thread in the http server's thread pool.", threadPool::getQueueSize);
+		Metrics.gauge("jetty_low_on_threads", "Whether the http server's thread pool is low on threads.", () -> threadPool.isLowOnThreads() ? 1 : 0);
+
+		// collectors report -1 for values they do not track
+		Metrics.counter("jvm_gc_collections_total", "Garbage collections since startup.", () -> ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).filter(c -> c > 0).sum());
+		Metrics.counter("jvm_gc_collection_seconds_total", "Time spent in garbage collection since startup.", () -> ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).filter(t -> t > 0).sum() / 1e3);
+		Metrics.gauge("jvm_heap_used_bytes", "Heap memory in use.", () -> ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+
+		javalin.get("/metrics", ctx -> ctx.contentType("text/plain; version=0.0.4").result(Metrics.write()));
 	}
 
-	public static <T> Handler jsonGet(String route, Supplier<T> supplier) {
-		Handler handler = ctx -> {
-			T object = supplier.get();
-			handleJson(ctx, object);
-		};
+	public static <T> Handler jsonGet(String route, Function<MetaSnapshot, T> function) {
+		return jsonGet(route, Limit.READS, function);
+	}
+
+	public static <T> Handler jsonGet(String route, Limit limit, Function<MetaSnapshot, T> function) {
+		return jsonGet(route, limit, null, (snapshot, context) -> function.apply(snapshot));
+	}
+
+	public static <T> Handler jsonGet(String route, BiFunction<MetaSnapshot, Query, T> function) {
+		return jsonGet(route, Limit.READS, null, function);
+	}
+
+	/**
+	 * Registers a json route whose metrics are split by the intermediary
+	 * generation that the given function resolves for each request.
+	 */
+	public static <T> Handler jsonGet(String route, ToIntFunction<Context> generation, BiFunction<MetaSnapshot, Query, T> function) {
+		return jsonGet(route, Limit.READS, generation, function);
+	}
+
+	/**
+	 * Registers a json route that is rate limited by the given limit, and
+	 * whose metrics are split by the intermediary generation that the given
+	 * function resolves for each request, if any.
+	 */
+	public static <T> Handler jsonGet(String route, Limit limit, ToIntFunction<Context> generation, BiFunction<MetaSnapshot, Query, T> function) {
+		JSON_ROUTES.add(new JsonRoute(route, limit, function));
+
+		Handler handler = instrument(route, limit, generation, ctx -> {
+			MetaSnapshot snapshot = OrnitheMeta.snapshot();
+			cacheHeaders(ctx, snapshot, config.cache.staleWhileRevalidateSeconds);
+
+			if (notModified(ctx, snapshot)) {
+				return;
+			}
+
+			CompletableFuture<JsonResponse> response = json(snapshot, requestKey(snapshot, ctx), function, Query.of(ctx));
+
+			if (response.isDone()) {
+				ctx.result(handleJson(ctx, response.join()));
+			} else {
+				ctx.result(response.thenApply(json -> handleJson(ctx, json)));
+			}
+		});
 		javalin.get(route, handler);
 		return handler;
 	}
 
-	public static <T> Handler jsonGet(String route, Function<Context, T> supplier) {
-		Handler handler = ctx -> {
-			T object = supplier.apply(ctx);
-			handleJson(ctx, object);
+	private static CompletableFuture<JsonResponse> json(MetaSnapshot snapshot, String key, BiFunction<MetaSnapshot, Query, ?> function, Query query) {
+		return JSON_REQUESTS.get(key, () -> {
+			Object object;
+
+			try {
+				object = function.apply(snapshot, query);
+			} catch (HttpResponseException e) {
+				// passed on to waiting requests as a response, which would see a failed future otherwise
+				return CompletableFuture.completedFuture(toJson(e.getStatus(), e.getMessage()));
+			}
+
+			// responses serialized ahead of time are served as they are
+			if (object instanceof JsonResponse) {
+				return CompletableFuture.completedFuture((JsonResponse) object);
+			}
+
+			return CompletableFuture.completedFuture(toJson(query.status(), object));
+		});
+	}
+
+	/**
+	 * Evaluates a json request given by its path and query string, as a
+	 * sub-query of a batch, against the given snapshot. It goes through the
+	 * same routes and coalesces with identical requests in flight. Each
+	 * sub-query is charged to the rate limit of its route for the given client.
+	 */
+	static CompletableFuture<JsonResponse> query(MetaSnapshot snapshot, String uri, String client) {
+		int queryStart = uri.indexOf('?');
+		String path = (queryStart < 0) ? uri : uri.substring(0, queryStart);
+		String query = (queryStart < 0) ? null : uri.substring(queryStart + 1);
+
+		try {
+			for (JsonRoute route : JSON_ROUTES) {
+				Map<String, String> pathParams = route.match(path);
+
+				if (pathParams != null) {
+					RateLimiter limiter = route.limit.limiter();
+
+					if (limiter != null && limiter.acquire(client) > 0) {
+						return CompletableFuture.completedFuture(toJson(429, "Too many requests, try again later"));
+					}
+
+					return json(snapshot, requestKey(snapshot, path, query), route.function, new Query(pathParams, JsonRoute.parseQuery(query)));
+				}
+			}
+
+			throw new NotFoundResponse("no route for " + path);
+		} catch (HttpResponseException e) {
+			return CompletableFuture.completedFuture(toJson(e.getStatus(), e.getMessage()));
+		}
+	}
+
+	/**
+	 * Sets the caching headers of a response derived from the given snapshot.
+	 * It may be cached until the next refresh is due, and then served stale
+	 * for the given number of seconds while it is revalidated. The snapshot id
+	 * is sent along for use with {@code /v3/changes}.
+	 */
+	public static void cacheHeaders(Context ctx, MetaSnapshot snapshot, int staleWhileRevalidate) {
+		// the delay is 0 while a refresh is running
+		long maxAge = Math.max(config.cache.minMaxAgeSeconds, OrnitheMeta.getNextRefreshDelay(TimeUnit.SECONDS));
+
+		ctx.header(Header.CACHE_CONTROL, "public, max-age=" + maxAge + ", stale-while-revalidate=" + staleWhileRevalidate + ", stale-if-error=" + config.cache.staleIfErrorSeconds);
+		ctx.header(Header.LAST_MODIFIED, HTTP_DATE.format(Instant.ofEpochMilli(snapshot.lastModified)));
+		ctx.header(SNAPSHOT_ID, Long.toString(snapshot.id));
+	}
+
+	/**
+	 * Answers the request with 304 if the client's copy is at least as recent
+	 * as the given snapshot.
+	 *
+	 * @return whether the request has been answered
+	 */
+	public static boolean notModified(Context ctx, MetaSnapshot snapshot) {
+		String since = ctx.header(Header.IF_MODIFIED_SINCE);
+
+		if (since == null) {
+			return false;
+		}
+
+		try {
+			// http dates have a resolution of one second
+			if (snapshot.lastModified / 1000 > Instant.from(HTTP_DATE.parse(since)).getEpochSecond()) {
+				return false;
+			}
+		} catch (DateTimeParseException e) {
+			return false;
+		}
+
+		ctx.status(304);
+		return true;
+	}
+
+	/**
+	 * @return a key that is the same for identical requests against the same
+	 * snapshot. The path covers both the route and its path parameters.
+	 */
+	public static String requestKey(MetaSnapshot snapshot, Context ctx) {
+		return requestKey(snapshot, ctx.path(), ctx.queryString());
+	}
+
+	private static String requestKey(MetaSnapshot snapshot, String path, String query) {
+		return snapshot.id + ":" + path + ((query == null) ? "" : "?" + query);
+	}
+
+	private static Server createServer(QueuedThreadPool threadPool) {
+		ServerConfig config = WebServer.config.server;
+		Server server = new Server(threadPool);
+
+		HttpConfiguration http = new HttpConfiguration();
+		http.setRequestHeaderSize(config.requestHeaderSize);
+		http.setResponseHeaderSize(config.responseHeaderSize);
+		http.setSendServerVersion(false);
+
+		ServerConnector connector;
+
+		if (config.h2c) {
+			HTTP2CServerConnectionFactory h2c = new HTTP2CServerConnectionFactory(http);
+			h2c.setMaxConcurrentStreams(config.maxConcurrentStreams);
+
+			connector = new ServerConnector(server, config.acceptors, config.selectors, new HttpConnectionFactory(http), h2c);
+		} else {
+			connector = new ServerConnector(server, config.acceptors, config.selectors, new HttpConnectionFactory(http));
+		}
+
+		connector.setHost(config.host);
+		connector.setPort(config.port);
+		connector.setIdleTimeout(config.idleTimeoutMillis);
+		connector.setAcceptQueueSize(config.acceptQueueSize);
+		server.addConnector(connector);
+
+		return server;
+	}
+
+	/**
+	 * Wraps the given handler so that its requests are rate limited and
+	 * recorded in the metrics of the given route and the access log.
+	 */
+	public static Handler instrument(String route, Handler handler) {
+		return instrument(route, Limit.READS, null, handler);
+	}
+
+	public static Handler instrument(String route, Limit limit, Handler handler) {
+		return instrument(route, limit, null, handler);
+	}
+
+	public static Handler instrument(String route, ToIntFunction<Context> generation, Handler handler) {
+		return instrument(route, Limit.READS, generation, handler);
+	}
+
+	/**
+	 * Wraps the given handler so that its requests are rate limited by the
+	 * given limit and recorded in the metrics of the given route and the
+	 * access log. The metrics of generational routes are split by the
+	 * generation the given function resolves, which is 0 for requests
+	 * without a valid generation.
+	 */
+	public static Handler instrument(String route, Limit limit, ToIntFunction<Context> generation, Handler handler) {
+		RouteMetrics routeMetrics = Metrics.route(route, 0);
+		RateLimiter limiter = limit.limiter();
+
+		return ctx -> {
+			long start = System.nanoTime();
+			RouteMetrics metrics = (generation == null) ? routeMetrics : Metrics.route(route, generation.applyAsInt(ctx));
+			AccessLog.Entry entry = (accessLog == null) ? null : accessLog.start(ctx, route);
+
+			if (limiter != null) {
+				long wait = limiter.acquire(clientIp(ctx));
+
+				if (wait > 0) {
+					ctx.status(429);
+					ctx.header("Retry-After", Long.toString((wait + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND));
+					ctx.result("Too many requests, try again later");
+
+					record(entry, metrics, 429, start, 0);
+					return;
+				}
+			}
+
+			try {
+				handler.handle(ctx);
+			} catch (Exception e) {
+				record(entry, metrics, errorStatus(e), start, 0);
+				throw e;
+			}
+
+			CompletableFuture<?> future = ctx.resultFuture();
+
+			if (future == null) {
+				record(entry, metrics, ctx.status(), start, responseBytes(ctx, ctx.resultStream()));
+			} else {
+				// recorded before javalin sends the result, while the response can still be read
+				ctx.result(future.whenComplete((result, t) -> {
+					record(entry, metrics, (t == null) ? ctx.status() : 500, start, responseBytes(ctx, result));
+				}));
+			}
 		};
-		javalin.get(route, handler);
-		return handler;
 	}
 
-	private static void handleJson(Context ctx, Object object) throws JsonProcessingException {
+	private static void record(AccessLog.Entry entry, RouteMetrics metrics, int status, long start, long bytes) {
+		long nanos = System.nanoTime() - start;
+
+		metrics.record(status, nanos, bytes);
+
+		if (entry != null) {
+			accessLog.finish(entry, status, nanos, bytes);
+		}
+	}
+
+	/**
+	 * The rate limits that routes are charged to, given when they are registered.
+	 */
+	public enum Limit {
+
+		// cheap, cacheable reads
+		READS,
+		// the full database routes
+		DATABASE,
+		// profile jsons and zips
+		PROFILES;
+
+		/**
+		 * @return the limiter of this limit, or null while rate limiting is disabled
+		 */
+		RateLimiter limiter() {
+			switch (this) {
+			case DATABASE:
+				return databaseLimiter;
+			case PROFILES:
+				return profileLimiter;
+			default:
+				return readLimiter;
+			}
+		}
+	}
+
+	static String clientIp(Context ctx) {
+		if (config.rateLimit.clientIpHeader != null) {
+			String value = ctx.header(config.rateLimit.clientIpHeader);
+
+			if (value != null) {
+				// the last address is the one added by our own proxy, the others can be forged
+				return value.substring(value.lastIndexOf(',') + 1).trim();
+			}
+		}
+
+		return ctx.ip();
+	}
+
+	private static int errorStatus(Exception e) {
+		if (e instanceof HttpResponseException) {
+			return ((HttpResponseException) e).getStatus();
+		}
+
+		return (e instanceof RejectedExecutionException) ? 503 : 500;
+	}
+
+	private static long responseBytes(Context ctx, Object result) {
+		Long bytesWritten = ctx.attribute(BYTES_WRITTEN);
+
+		if (bytesWritten != null) {
+			return bytesWritten;
+		}
+		if (result instanceof InputStream) {
+			try {
+				// results are always fully buffered
+				return ((InputStream) result).available();
+			} catch (IOException e) {
+			}
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Writes the given bytes directly to the response, bypassing Javalin's
+	 * dynamic compression so that the content length is known up front.
+	 */
+	public static void writeBytes(Context ctx, byte[] bytes) throws IOException {
+		ctx.attribute(BYTES_WRITTEN, (long) bytes.length);
+		ctx.res.setContentLength(bytes.length);
+		ctx.res.getOutputStream().write(bytes);
+	}
+
+	/**
+	 * Waits for the given bytes on the request thread and writes them as
+	 * above, so that responses computed on another thread are written by the
+	 * same code path, with a known content length. Failures are rethrown as
+	 * they are, for the exception handlers.
+	 */
+	public static void writeBytes(Context ctx, CompletableFuture<byte[]> bytes) throws Exception {
+		byte[] result;
+
+		try {
+			result = bytes.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+
+			throw e;
+		}
+
+		writeBytes(ctx, result);
+	}
+
+	static JsonResponse toJson(int status, Object object) {
 		if (object == null) {
 			object = new Object();
-			ctx.status(400);
+			status = 400;
+		}
+
+		try {
+			return new JsonResponse(status, OrnitheMeta.MAPPER.writeValueAsBytes(object));
+		} catch (JsonProcessingException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static InputStream handleJson(Context ctx, JsonResponse response) {
+		ctx.status(response.status);
+		ctx.contentType("application/json");
+
+		return new ByteArrayInputStream(response.body);
+	}
+
+	/**
+	 * A serialized json response, which may be shared by coalesced requests.
+	 */
+	static class JsonResponse {
+
+		final int status;
+		final byte[] body;
+
+		JsonResponse(int status, byte[] body) {
+			this.status = status;
+			this.body = body;
 		}
-		String response = OrnitheMeta.MAPPER.writeValueAsString(object);
-		ctx.contentType("application/json").header(Header.CACHE_CONTROL, "public, max-age=60").result(response);
 	}
 
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.web;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.ornithemc.meta.OrnitheMeta;
+import net.ornithemc.meta.utils.LocalFiles;
+
+public class WebServerConfig {
+
+	private static final File FILE = LocalFiles.DIR.resolve("config-web.json").toFile();
+
+	public ServerConfig server = new ServerConfig();
+	public ProfileExecutorConfig profileExecutor = new ProfileExecutorConfig();
+	public CacheConfig cache = new CacheConfig();
+	public RateLimitConfig rateLimit = new RateLimitConfig();
+	public AccessLogConfig accessLog = new AccessLogConfig();
+	public EventsConfig events = new EventsConfig();
+	public BatchConfig batch = new BatchConfig();
+
+	public static WebServerConfig load() throws IOException {
+		if (!FILE.exists()) {
+			return new WebServerConfig();
+		}
+
+		return OrnitheMeta.MAPPER.readValue(FILE, WebServerConfig.class);
+	}
+
+	public static class ServerConfig {
+
+		public String host = null;
+		public int port = 5555;
+
+		public int minThreads = 8;
+		public int maxThreads = 250;
+		public int threadIdleTimeoutMillis = 60000;
+
+		// -1 lets jetty choose based on the number of cores
+		public int acceptors = -1;
+		public int selectors = -1;
+		public int acceptQueueSize = 0;
+		public long idleTimeoutMillis = 30000;
+
+		public int requestHeaderSize = 8192;
+		public int responseHeaderSize = 8192;
+
+		// serve http/2 over cleartext, for use behind a proxy that terminates tls
+		public boolean h2c = false;
+		public int maxConcurrentStreams = 128;
+
+	}
+
+	public static class ProfileExecutorConfig {
+
+		public int threads = 2;
+		public int queueSize = 64;
+		public int retryAfterSeconds = 5;
+
+	}
+
+	/**
+	 * Responses may be cached until the next refresh is due. These control
+	 * how long caches may serve them stale after that.
+	 */
+	public static class CacheConfig {
+
+		public int staleWhileRevalidateSeconds = 60;
+		// the lowest max-age sent, for responses sent while a refresh is running
+		public int minMaxAgeSeconds = 10;
+		// profiles rarely change and are expensive to generate
+		public int profileStaleWhileRevalidateSeconds = 86400;
+		public int staleIfErrorSeconds = 86400;
+
+	}
+
+	public static class RateLimitConfig {
+
+		public boolean enabled = false;
+		// the header holding the client address when running behind a proxy,
+		// e.g. X-Forwarded-For, or null to use the address of the connection
+		public String clientIpHeader = null;
+		public int idleSeconds = 600;
+
+		// cheap, cacheable reads
+		public LimitConfig reads = new LimitConfig(120, 20);
+		// the full database routes, /v2/versions and /v3/versions
+		public LimitConfig database = new LimitConfig(10, 0.2);
+		// profile json and zip downloads
+		public LimitConfig profiles = new LimitConfig(30, 1);
+
+	}
+
+	public static class AccessLogConfig {
+
+		public boolean enabled = false;
+		// relative to the local files directory
+		public String file = "access-log.jsonl";
+		// the fraction of requests that is logged
+		public double sampleRate = 0.01;
+		// entries waiting to be written, beyond which they are dropped
+		public int queueSize = 8192;
+
+	}
+
+	public static class EventsConfig {
+
+		public boolean enabled = true;
+		// the connections held open at once, beyond which clients are asked to retry later
+		public int maxClients = 10000;
+		// threads writing events and heartbeats to the clients
+		public int threads = 2;
+		// must be below the connection idle timeout, or idle clients are dropped
+		public int heartbeatSeconds = 15;
+		// how long clients wait before reconnecting, and before retrying when the server is full
+		public int retryMillis = 5000;
+		public int rejectedRetryMillis = 60000;
+
+	}
+
+	public static class BatchConfig {
+
+		public int maxQueries = 32;
+
+	}
+
+	public static class LimitConfig {
+
+		public int burst;
+		public double perSecond;
+
+		public LimitConfig() {
+		}
+
+		public LimitConfig(int burst, double perSecond) {
+			this.burst = burst;
+			this.perSecond = perSecond;
+		}
+
+	}
+}
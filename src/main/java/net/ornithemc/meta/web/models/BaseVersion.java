@@ -24,27 +24,31 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 
 public class BaseVersion implements Predicate<String> {
 
-	String version;
+	final String version;
 	@JsonIgnore
 	String versionNoSide;
-	boolean stable = false;
+	final boolean stable;
 
 	public BaseVersion(String version, boolean stable) {
 		this.version = version;
 		this.stable = stable;
 	}
 
+	/**
+	 * For subclasses that derive the version from other state instead of
+	 * storing it, and so must override {@link #getVersion()}.
+	 */
+	BaseVersion(boolean stable) {
+		this(null, stable);
+	}
+
 	public String getVersion() {
 		return version;
 	}
 
 	public String getVersionNoSide() {
 		if (versionNoSide == null) {
-			versionNoSide = version;
-
-			if (versionNoSide.endsWith("-client") || versionNoSide.endsWith("-server")) {
-				versionNoSide = versionNoSide.substring(0, versionNoSide.length() - 7);
-			}
+			versionNoSide = stripSide(getVersion());
 		}
 
 		return versionNoSide;
@@ -54,12 +58,19 @@ public class BaseVersion implements Predicate<String> {
 		return stable;
 	}
 
-	public void setStable(boolean stable) {
-		this.stable = stable;
-	}
-
 	@Override
 	public boolean test(String s) {
-		return version.equals(s);
+		return getVersion().equals(s);
+	}
+
+	/**
+	 * Strips the -client or -server suffix from the given version, if present.
+	 */
+	public static String stripSide(String version) {
+		if (version.endsWith("-client") || version.endsWith("-server")) {
+			return version.substring(0, version.length() - 7);
+		}
+
+		return version;
 	}
 }
@@ -16,32 +16,20 @@
  * limitations under the License.
  */
 
-package net.ornithemc.meta.utils;
+package net.ornithemc.meta.web.models;
 
-public class FeatherVersionParser {
+import java.util.List;
 
-	private String mappingsVersion;
-	private String minecraftVersion;
+import net.ornithemc.meta.data.SnapshotChanges;
 
-	private String version;
+public class Changes {
 
-	public FeatherVersionParser(String version) {
-		this.version = version;
+	// the snapshot the changes lead up to, to pass as since in the next request
+	public final long snapshot;
+	public final List<SnapshotChanges> changes;
 
-		this.minecraftVersion = version.substring(0, version.lastIndexOf('+'));
-		this.mappingsVersion = version.substring(version.lastIndexOf('.') + 1);
+	public Changes(long snapshot, List<SnapshotChanges> changes) {
+		this.snapshot = snapshot;
+		this.changes = changes;
 	}
-
-	public String getMappingsVersion() {
-		return mappingsVersion;
-	}
-
-	public String getMinecraftVersion() {
-		return minecraftVersion;
-	}
-
-	@Override
-	public String toString() {
-		return version;
-	}
-}
\ No newline at end of file
+}
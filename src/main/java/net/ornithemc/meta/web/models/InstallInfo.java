@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.web.models;
+
+import java.util.List;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The artifacts needed to install a loader for one game version, as the
+ * installer would pick them.
+ */
+public class InstallInfo {
+
+	public final String gameVersion;
+	public final int generation;
+	public final MavenVersion intermediary;
+	@Nullable
+	public final MavenBuildGameVersion feather;
+	public final MavenBuildVersion loader;
+	@Nullable
+	public final MavenVersion osl;
+	// the modules of that osl version that support the game version
+	public final List<MavenVersion> oslModules;
+	public final List<Library> libraries;
+
+	public InstallInfo(String gameVersion, int generation, MavenVersion intermediary, MavenBuildGameVersion feather, MavenBuildVersion loader, MavenVersion osl, List<MavenVersion> oslModules, List<Library> libraries) {
+		this.gameVersion = gameVersion;
+		this.generation = generation;
+		this.intermediary = intermediary;
+		this.feather = feather;
+		this.loader = loader;
+		this.osl = osl;
+		this.oslModules = oslModules;
+		this.libraries = libraries;
+	}
+}
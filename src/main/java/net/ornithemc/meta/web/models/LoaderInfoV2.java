@@ -19,7 +19,6 @@
 package net.ornithemc.meta.web.models;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import net.ornithemc.meta.utils.LoaderMetaV2;
 import org.jetbrains.annotations.Nullable;
 
 public class LoaderInfoV2 implements LoaderInfoBase {
@@ -35,8 +34,8 @@ public class LoaderInfoV2 implements LoaderInfoBase {
 		this.calamus = calamus;
 	}
 
-	public LoaderInfoV2 populateMeta() {
-		launcherMeta = LoaderMetaV2.getMeta(this);
+	public LoaderInfoV2 populateMeta(@Nullable JsonNode launcherMeta) {
+		this.launcherMeta = launcherMeta;
 		return this;
 	}
 
@@ -19,7 +19,6 @@
 package net.ornithemc.meta.web.models;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import net.ornithemc.meta.utils.LoaderMetaV3;
 import org.jetbrains.annotations.Nullable;
 
 public class LoaderInfoV3 implements LoaderInfoBase {
@@ -37,8 +36,8 @@ public class LoaderInfoV3 implements LoaderInfoBase {
 		this.intermediary = intermediary;
 	}
 
-	public LoaderInfoV3 populateMeta() {
-		launcherMeta = LoaderMetaV3.getMeta(this);
+	public LoaderInfoV3 populateMeta(@Nullable JsonNode launcherMeta) {
+		this.launcherMeta = launcherMeta;
 		return this;
 	}
 
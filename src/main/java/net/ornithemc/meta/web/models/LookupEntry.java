@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.web.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+/**
+ * Where a maven coordinate appears in the database. Artifacts are named as
+ * in the changes between snapshots, and the generation is omitted for those
+ * that are shared between generations.
+ */
+@JsonInclude(Include.NON_NULL)
+public class LookupEntry {
+
+	public final String artifact;
+	public final Integer generation;
+	public final String gameVersion;
+	public final String version;
+	public final boolean stable;
+
+	public LookupEntry(String artifact, Integer generation, String gameVersion, BaseVersion version) {
+		this.artifact = artifact;
+		this.generation = generation;
+		this.gameVersion = gameVersion;
+		this.version = version.getVersion();
+		this.stable = version.isStable();
+	}
+}
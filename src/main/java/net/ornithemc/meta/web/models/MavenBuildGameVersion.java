@@ -18,30 +18,32 @@
 
 package net.ornithemc.meta.web.models;
 
-import net.ornithemc.meta.utils.FeatherVersionParser;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
+@JsonPropertyOrder({ "version", "stable", "maven", "separator", "build", "gameVersion" })
 public class MavenBuildGameVersion extends MavenBuildVersion {
 
-	String gameVersion;
-
 	public MavenBuildGameVersion(String maven) {
-		super(maven);
-		gameVersion = new FeatherVersionParser(maven.split(":")[2]).getMinecraftVersion();
+		this(maven, false);
+	}
 
+	public MavenBuildGameVersion(String maven, boolean stable) {
+		super(maven, stable);
+		// fail early on versions that do not encode a game version,
+		// without deriving it before it is needed
+		if (getVersion().lastIndexOf('+') < 0) {
+			throw new IllegalArgumentException("version does not encode a game version: " + maven);
+		}
 	}
 
 	public String getGameVersion() {
-		return gameVersion;
+		return coordinate.getGameVersion();
 	}
 
 	@Override
 	public String getVersionNoSide() {
 		if (versionNoSide == null) {
-			versionNoSide = gameVersion;
-
-			if (versionNoSide.endsWith("-client") || versionNoSide.endsWith("-server")) {
-				versionNoSide = versionNoSide.substring(0, versionNoSide.length() - 7);
-			}
+			versionNoSide = stripSide(getGameVersion());
 		}
 
 		return versionNoSide;
@@ -20,13 +20,17 @@ package net.ornithemc.meta.web.models;
 
 public class MavenBuildVersion extends MavenVersion {
 
-	String separator;
-	int build;
+	final String separator;
+	final int build;
 
 	public MavenBuildVersion(String maven) {
-		super(maven);
-		String version = maven.split(":")[2];
+		this(maven, false);
+	}
+
+	public MavenBuildVersion(String maven, boolean stable) {
+		super(maven, stable);
 
+		String version = getVersion();
 		if (version.contains("+build.")) {
 			separator = "+build.";
 		} else {
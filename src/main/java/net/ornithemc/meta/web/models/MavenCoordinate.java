@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2019 FabricMC
+ *
+ * Modifications copyright (c) 2022 OrnitheMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ornithemc.meta.web.models;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A maven coordinate of the form {@code group:artifact:version}, which may be
+ * followed by a classifier. The coordinate is parsed once, and the group and
+ * artifact ids are interned as they are shared by every version of an
+ * artifact.
+ */
+public final class MavenCoordinate {
+
+	private static final Map<String, String> NAMES = new ConcurrentHashMap<>();
+
+	private final String maven;
+	private final String group;
+	private final String artifact;
+	private final String version;
+
+	// derived lazily, as only some artifacts encode a game version
+	private String gameVersion;
+
+	private MavenCoordinate(String maven, String group, String artifact, String version) {
+		this.maven = maven;
+		this.group = group;
+		this.artifact = artifact;
+		this.version = version;
+	}
+
+	public static MavenCoordinate parse(String maven) {
+		int artifactStart = maven.indexOf(':') + 1;
+		int versionStart = (artifactStart == 0) ? 0 : maven.indexOf(':', artifactStart) + 1;
+
+		if (versionStart == 0) {
+			throw new IllegalArgumentException("invalid maven coordinate: " + maven);
+		}
+
+		int versionEnd = maven.indexOf(':', versionStart);
+
+		if (versionEnd < 0) {
+			versionEnd = maven.length();
+		}
+
+		return new MavenCoordinate(maven,
+				intern(maven.substring(0, artifactStart - 1)),
+				intern(maven.substring(artifactStart, versionStart - 1)),
+				maven.substring(versionStart, versionEnd));
+	}
+
+	private static String intern(String name) {
+		String interned = NAMES.putIfAbsent(name, name);
+		return (interned == null) ? name : interned;
+	}
+
+	public String getGroup() {
+		return group;
+	}
+
+	public String getArtifact() {
+		return artifact;
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	/**
+	 * The game version of a version in the {@code <game version>+build.<build>} format.
+	 */
+	public String getGameVersion() {
+		if (gameVersion == null) {
+			gameVersion = version.substring(0, version.lastIndexOf('+'));
+		}
+
+		return gameVersion;
+	}
+
+	/**
+	 * The path of the artifact's file with the given extension, relative to the maven root.
+	 */
+	public String getPath(String extension) {
+		return String.format("%s/%s/%s/%s-%s.%s", group.replace('.', '/'), artifact, version, artifact, version, extension);
+	}
+
+	@Override
+	public String toString() {
+		return maven;
+	}
+}
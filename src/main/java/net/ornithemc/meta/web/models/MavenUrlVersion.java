@@ -25,14 +25,11 @@ public class MavenUrlVersion extends MavenVersion {
     public final String url;
 
     public MavenUrlVersion(String maven) {
-        super(maven);
-        String[] split = maven.split(":");
-        this.url = String.format("%s%s/%s/%s/%s-%s.jar", VersionDatabaseOld.ORNITHE_MAVEN_URL,
-                split[0].replaceAll("\\.", "/"),
-                split[1],
-                split[2],
-                split[1],
-                split[2]
-        );
+        this(maven, false);
+    }
+
+    public MavenUrlVersion(String maven, boolean stable) {
+        super(maven, stable);
+        this.url = VersionDatabaseOld.ORNITHE_MAVEN_URL + coordinate.getPath("jar");
     }
 }
@@ -18,20 +18,38 @@
 
 package net.ornithemc.meta.web.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+@JsonPropertyOrder({ "version", "stable", "maven" })
 public class MavenVersion extends BaseVersion {
 
-	String maven;
+	final MavenCoordinate coordinate;
 
 	public MavenVersion(String maven, boolean stable) {
-		super(maven.split(":")[2], stable);
-		this.maven = maven;
+		this(MavenCoordinate.parse(maven), stable);
 	}
 
 	public MavenVersion(String maven) {
 		this(maven, false);
 	}
 
+	MavenVersion(MavenCoordinate coordinate, boolean stable) {
+		super(stable);
+		this.coordinate = coordinate;
+	}
+
+	@Override
+	public String getVersion() {
+		return coordinate.getVersion();
+	}
+
 	public String getMaven() {
-		return maven;
+		return coordinate.toString();
+	}
+
+	@JsonIgnore
+	public MavenCoordinate getCoordinate() {
+		return coordinate;
 	}
 }